@@ -81,29 +81,22 @@ public class AddBillActivity extends AppCompatActivity {
                return;
             }
 
-            String givenAmountPaid = etAmountPaid.getText().toString();
-            String givenMoneyAllowed = etMoneyAllowed.getText().toString();
+            // amounts in cents, read straight from the EditTexts' text
+            long amountPaid = Money.parseCents(etAmountPaid.getText());
+            long moneyAllowed = Money.parseCents(etMoneyAllowed.getText());
 
-            if (toastedInvalidMoney(givenAmountPaid.isEmpty(),
-                                    givenMoneyAllowed.isEmpty())) {
+            if (toastedInvalidMoney(amountPaid == Money.INVALID,
+                                    moneyAllowed == Money.INVALID)) {
                return;
             }
 
-            double dblAmountPaid = Double.parseDouble(givenAmountPaid);
-            double dblMoneyAllowed = Double.parseDouble(givenMoneyAllowed);
-
-            if(toastedInvalidMoney(isNotValidMoneyInput(dblAmountPaid),
-                                   isNotValidMoneyInput(dblMoneyAllowed))) {
-               return;
-            }
-
-            updateSharedPrefs(givenMoneyAllowed);
+            updateSharedPrefs(moneyAllowed);
 
             Intent intent = new Intent(AddBillActivity.this,
                                        ViewHistoryActivity.class);
-            intent.putExtra("displayDate", "("+givenDate+")");
-            intent.putExtra("dblAmountPaid", dblAmountPaid);
-            intent.putExtra("dblMoneyAllowed", dblMoneyAllowed);
+            intent.putExtra("datePaid", BillDates.parseEpochDay(givenDate));
+            intent.putExtra("amountPaid", amountPaid);
+            intent.putExtra("moneyAllowed", moneyAllowed);
             startActivity(intent);
          }
       });
@@ -203,17 +196,6 @@ public class AddBillActivity extends AppCompatActivity {
       return strComponent;
    }
 
-   // post: returns false if 'amount' has <= 2 decimal places, returns true
-   //       otherwise
-   private boolean isNotValidMoneyInput(double amount) {
-      String strAmount = Double.toString(amount);
-      if (strAmount.contains(".")) {
-         String[] amountComponents = strAmount.split("\\.");
-         return (amountComponents[1].length() > 2);
-      }
-      return false;
-   }
-
    // post: defaults to the current date (today) and/or uses the last saved
    //       allowed amount of money (checking their corresponding CheckBoxes in
    //       the process), or neither, depending on the last saved user
@@ -244,8 +226,8 @@ public class AddBillActivity extends AppCompatActivity {
 
    // post: saves the current user preferences for the next time they want to
    //       add a bill (default to the current date (today) and/or remember the
-   //       current allowed amount of money, or neither)
-   private void updateSharedPrefs(String givenMoneyAllowed) {
+   //       given allowed amount of money (in cents), or neither)
+   private void updateSharedPrefs(long moneyAllowed) {
       SharedPreferences.Editor mPrefsEditor = mPreferences.edit();
       boolean cbRememberAllowedMoneyIsChecked =
               cbRememberAllowedMoney.isChecked();
@@ -256,23 +238,9 @@ public class AddBillActivity extends AppCompatActivity {
                               cbRememberAllowedMoneyIsChecked);
 
       if (cbRememberAllowedMoneyIsChecked) {
-         // if/else block below: minor visual enhancement that formats the
-         //                      allowed amount of money to have exactly two
-         //                      decimal places (e.g. "20" is reformatted to
-         //                      "20.00")
-         String formattedMoneyAllowed = givenMoneyAllowed;
-         if (!givenMoneyAllowed.contains(".")) {
-            formattedMoneyAllowed += ".00";
-         } else {
-            String[] allowedSplit = givenMoneyAllowed.split("\\.");
-            if (allowedSplit.length == 1) {
-               formattedMoneyAllowed += "00";
-            } else if (allowedSplit[1].length() == 1) {
-               formattedMoneyAllowed += "0";
-            }
-         }
-
-         mPrefsEditor.putString("savedAllowed", formattedMoneyAllowed);
+         // minor visual enhancement: the allowed amount of money is saved
+         // with exactly two decimal places (e.g. "20" is saved as "20.00")
+         mPrefsEditor.putString("savedAllowed", Money.format(moneyAllowed));
       } else {
          mPrefsEditor.putString("savedAllowed", "");
       }
@@ -0,0 +1,41 @@
+/*
+ * Class used for passing a bill that isn't in the database yet (e.g. one
+ * being imported or restored) to DatabaseHelper.addBills().
+ *
+ * A bill is its date paid (as an epoch day) and its amount paid and money
+ * allowed (in cents); its ID and display are given by the database.
+ */
+
+package com.example.restaurantspendingtracker;
+
+public final class Bill {
+
+   private final int datePaid; // epoch day
+   private final long amountPaid; // in cents
+   private final long moneyAllowed; // in cents
+
+   // pre:  'datePaid' is an epoch day
+   // post: constructs a bill paid on the given date with the given amounts
+   //       (in cents)
+   public Bill(int datePaid, long amountPaid, long moneyAllowed) {
+      this.datePaid = datePaid;
+      this.amountPaid = amountPaid;
+      this.moneyAllowed = moneyAllowed;
+   }
+
+   // post: returns the date paid (epoch day) of this bill
+   public int getDatePaid() {
+      return datePaid;
+   }
+
+   // post: returns the amount paid (in cents) of this bill
+   public long getAmountPaid() {
+      return amountPaid;
+   }
+
+   // post: returns the money allowed (in cents) of this bill
+   public long getMoneyAllowed() {
+      return moneyAllowed;
+   }
+
+}
@@ -0,0 +1,300 @@
+/*
+ * Class used for exporting the bill history to, and importing bills from, a
+ * CSV file.
+ *
+ * The file has a header line followed by one line per bill, oldest first:
+ *
+ *    date,amount_paid,money_allowed
+ *    09/01/2019,12.50,20.00
+ *
+ * Both directions stream: the export writes each row as it is read from a
+ * cursor, and the import parses each line only when the bulk insert asks for
+ * the next bill, so memory use doesn't depend on the size of the file.
+ * Lines that aren't valid bills are skipped and counted.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public final class BillCsv {
+
+   public static final String HEADER = "date,amount_paid,money_allowed";
+
+   private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   // number of rows written between reports of the export's progress
+   private static final int PROGRESS_INTERVAL = 1000;
+
+   private BillCsv() {
+   }
+
+   // pre:  'bills' has the date paid, amount paid and money allowed (in that
+   //       order) of the bills to export as its first three columns
+   // post: writes the header and every bill of the given cursor to the given
+   //       file, replacing it only once every row is written; 'listener' (if
+   //       not null) is told the number of rows written every
+   //       PROGRESS_INTERVAL rows
+   public static BillTransfer.Result export
+           (Cursor bills, File file, BillTransfer.ProgressListener listener) {
+      long startNanos = System.nanoTime();
+      File partialFile = new File(file.getPath() + ".partial");
+      int billCount = 0;
+      try {
+         Writer writer = new BufferedWriter(new OutputStreamWriter
+                 (new FileOutputStream(partialFile), UTF_8), BUFFER_SIZE);
+         try {
+            StringBuilder row = new StringBuilder(HEADER.length() + 1);
+            row.append(HEADER).append('\n');
+            writer.append(row);
+            while (bills.moveToNext()) {
+               row.setLength(0);
+               appendRow(row, bills.getInt(0), bills.getLong(1),
+                         bills.getLong(2));
+               writer.append(row);
+               billCount++;
+               if (listener != null && billCount % PROGRESS_INTERVAL == 0) {
+                  listener.onProgress(billCount);
+               }
+            }
+         } finally {
+            writer.close();
+         }
+         if (!partialFile.renameTo(file)) {
+            throw new IOException("Couldn't replace " + file);
+         }
+      } catch (IOException e) {
+         partialFile.delete();
+         return new BillTransfer.Result(file, billCount, 0, 0,
+                                        System.nanoTime() - startNanos, e);
+      }
+      if (listener != null) {
+         listener.onProgress(billCount);
+      }
+      return new BillTransfer.Result(file, billCount, 0, 0,
+                                     System.nanoTime() - startNanos, null);
+   }
+
+   // post: adds every valid bill of the given file to the given database
+   //       through its bulk insert, skipping the header and invalid lines;
+   //       'listener' (if not null) is told the number of bills imported so
+   //       far after each transaction; if reading the file or adding the
+   //       bills fails (e.g. the database is full), the bills of the
+   //       transaction in progress aren't imported
+   public static BillTransfer.Result importInto
+           (DatabaseHelper billDB, File file,
+            final BillTransfer.ProgressListener listener) {
+      long startNanos = System.nanoTime();
+      final int[] importedCount = new int[1];
+      RowIterator rows = null;
+      try {
+         rows = new RowIterator(new BufferedReader(new InputStreamReader
+                 (new FileInputStream(file), UTF_8), BUFFER_SIZE));
+         try {
+            billDB.addBills(rows, new DatabaseHelper.BulkInsertListener() {
+               @Override
+               public void onBillsInserted(int insertedCount) {
+                  importedCount[0] = insertedCount;
+                  if (listener != null) {
+                     listener.onProgress(insertedCount);
+                  }
+               }
+            });
+         } finally {
+            rows.close();
+         }
+      } catch (IOException e) {
+         return importResult(file, rows, importedCount[0], startNanos, e);
+      } catch (ReadFailure e) {
+         return importResult(file, rows, importedCount[0], startNanos,
+                             e.getCause());
+      } catch (SQLiteException e) {
+         return importResult(file, rows, importedCount[0], startNanos,
+                             new IOException(e.getMessage(), e));
+      }
+      return importResult(file, rows, importedCount[0], startNanos, null);
+   }
+
+   // post: returns the result of an import of the given file that read the
+   //       given rows (null if the file couldn't be opened)
+   private static BillTransfer.Result importResult
+           (File file, RowIterator rows, int importedCount, long startNanos,
+            IOException error) {
+      return new BillTransfer.Result
+              (file, importedCount,
+               (rows == null) ? 0 : rows.skippedLineCount,
+               (rows == null) ? 0 : rows.firstSkippedLine,
+               System.nanoTime() - startNanos, error);
+   }
+
+   // pre:  'datePaid' is an epoch day
+   // post: appends the CSV line (including its '\n') of a bill with the given
+   //       date and amounts (in cents) to the given StringBuilder
+   public static void appendRow(StringBuilder row, int datePaid,
+                                long amountPaid, long moneyAllowed) {
+      BillDates.appendFormatted(row, datePaid);
+      row.append(',');
+      Money.appendFormatted(row, amountPaid);
+      row.append(',');
+      Money.appendFormatted(row, moneyAllowed);
+      row.append('\n');
+   }
+
+   // post: returns the bill of the given CSV line, or null if it isn't a
+   //       valid bill (three fields: a "MM/dd/yyyy" date and two amounts
+   //       with at most two decimals; fields may be quoted or surrounded by
+   //       spaces)
+   public static Bill parseRow(String line) {
+      int firstComma = line.indexOf(',');
+      int secondComma = line.indexOf(',', firstComma + 1);
+      if (firstComma == -1 || secondComma == -1
+              || line.indexOf(',', secondComma + 1) != -1) {
+         return null;
+      }
+      int datePaid = parseDate(line, 0, firstComma);
+      long amountPaid = parseCents(line, firstComma + 1, secondComma);
+      long moneyAllowed = parseCents(line, secondComma + 1, line.length());
+      if (datePaid == BillDates.INVALID || amountPaid == Money.INVALID
+              || moneyAllowed == Money.INVALID) {
+         return null;
+      }
+      return new Bill(datePaid, amountPaid, moneyAllowed);
+   }
+
+   // post: returns the epoch day of the date between 'start' and 'end' of the
+   //       given line, or BillDates.INVALID if there isn't a valid one
+   private static int parseDate(String line, int start, int end) {
+      long field = trimField(line, start, end);
+      return BillDates.parseEpochDay(line, (int) (field >>> 32), (int) field);
+   }
+
+   // post: returns the amount (in cents) between 'start' and 'end' of the
+   //       given line, or Money.INVALID if there isn't a valid one
+   private static long parseCents(String line, int start, int end) {
+      long field = trimField(line, start, end);
+      return Money.parseCents(line, (int) (field >>> 32), (int) field);
+   }
+
+   // post: returns the bounds of the field between 'start' and 'end' of the
+   //       given line without surrounding spaces and quotes, packed as
+   //       (start << 32) | end
+   private static long trimField(String line, int start, int end) {
+      while (start < end && line.charAt(start) == ' ') {
+         start++;
+      }
+      while (end > start && line.charAt(end - 1) == ' ') {
+         end--;
+      }
+      if (end - start >= 2 && line.charAt(start) == '"'
+              && line.charAt(end - 1) == '"') {
+         start++;
+         end--;
+      }
+      return ((long) start << 32) | end;
+   }
+
+   /*
+    * Iterator over the valid bills of a CSV file, reading one line at a time
+    * as bills are requested. Package-private so that it can be tested
+    * without a database.
+    */
+   static final class RowIterator implements Iterator<Bill> {
+
+      private final BufferedReader reader;
+      private Bill next; // next valid bill, or null if not read yet
+      private boolean endReached;
+      private int lineNumber;
+      int skippedLineCount;
+      int firstSkippedLine; // 0 if no line was skipped
+
+      RowIterator(BufferedReader reader) {
+         this.reader = reader;
+      }
+
+      // post: returns true if the file has another valid bill, reading lines
+      //       up to it; throws a ReadFailure if reading fails
+      @Override
+      public boolean hasNext() {
+         while (next == null && !endReached) {
+            String line;
+            try {
+               line = reader.readLine();
+            } catch (IOException e) {
+               throw new ReadFailure(e);
+            }
+            if (line == null) {
+               endReached = true;
+               break;
+            }
+            lineNumber++;
+            if (line.trim().isEmpty()
+                    || (lineNumber == 1 && line.trim().equals(HEADER))) {
+               continue;
+            }
+            next = parseRow(line);
+            if (next == null) {
+               skippedLineCount++;
+               if (firstSkippedLine == 0) {
+                  firstSkippedLine = lineNumber;
+               }
+            }
+         }
+         return next != null;
+      }
+
+      @Override
+      public Bill next() {
+         if (!hasNext()) {
+            throw new NoSuchElementException();
+         }
+         Bill bill = next;
+         next = null;
+         return bill;
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+
+      void close() throws IOException {
+         reader.close();
+      }
+
+   }
+
+   /*
+    * Thrown through the bulk insert when the file can't be read.
+    */
+   private static final class ReadFailure extends RuntimeException {
+
+      private static final long serialVersionUID = 1L;
+
+      ReadFailure(IOException cause) {
+         super(cause);
+      }
+
+      @Override
+      public synchronized IOException getCause() {
+         return (IOException) super.getCause();
+      }
+
+   }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * Class used for finding the bills of a BillStore paid on the dates matching
+ * a DatePattern without checking every bill.
+ *
+ * The index holds one key per bill, its date paid and ID packed into a long,
+ * kept sorted by date (and by ID within a date) in decreasing order, the
+ * order the history is shown in. Since epoch days are ordered by year, then
+ * month, then day, the bills of a year, a month or a day are each a
+ * contiguous run of keys, and a pattern's matching bills are the runs of its
+ * epoch-day ranges: each run is found with a binary search, so a lookup takes
+ * time proportional to the number of matches (and ranges), not to the number
+ * of bills.
+ *
+ * An added key is merged into its place straight away. The keys sit in the
+ * middle of their array with free slots on both sides, so a key is put in by
+ * moving the keys on whichever side of it has fewer: a page of older bills
+ * goes at the end and a new bill at the front without moving any other key.
+ *
+ * Removing a bill only marks its key as removed (a tombstone), found with a
+ * binary search, instead of shifting the keys after it; putting the bill back
+ * clears the mark, and the marked keys are dropped together in a single pass
+ * once they are more than half of the keys.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import java.util.Arrays;
+
+public final class BillDateIndex {
+
+   private static final int INITIAL_CAPACITY = 64;
+
+   private long[] keys = new long[INITIAL_CAPACITY]; // see toKey()
+   private boolean[] removed = new boolean[INITIAL_CAPACITY]; // whether the
+                                                // key in the same slot is
+                                                // removed
+   private int first = INITIAL_CAPACITY / 2; // slot of the first key
+   private int size; // number of keys, including the removed ones
+   private int removedCount;
+
+   // post: returns the number of bills in this index
+   public int size() {
+      return size - removedCount;
+   }
+
+   // pre:  the index doesn't already contain the given ID
+   // post: adds the bill with the given date paid (epoch day) and ID at its
+   //       place among the keys
+   public void add(int datePaid, int ID) {
+      long key = toKey(datePaid, ID);
+      int index = indexOf(key);
+      if (index < 0) {
+         insertAt(-(index + 1), key);
+      } else if (removed[first + index]) { // a removed bill put back
+         removed[first + index] = false;
+         removedCount--;
+      }
+   }
+
+   // post: removes the bill with the given date paid (epoch day) and ID, if
+   //       the index contains it, and returns true if it did
+   public boolean remove(int datePaid, int ID) {
+      int index = indexOf(toKey(datePaid, ID));
+      if (index < 0 || removed[first + index]) {
+         return false;
+      }
+      removed[first + index] = true;
+      removedCount++;
+      if (removedCount > size / 2) {
+         dropRemoved();
+      }
+      return true;
+   }
+
+   // post: removes every bill from this index
+   public void clear() {
+      first = keys.length / 2;
+      size = 0;
+      removedCount = 0;
+   }
+
+   // post: returns the IDs of the bills paid on a date matching the given
+   //       pattern, in no particular order
+   public int[] findIDs(DatePattern pattern) {
+      if (size == 0) {
+         return new int[0];
+      }
+      int[] ranges = pattern.toEpochDayRanges(dateOf(keys[first + size - 1]),
+                                              dateOf(keys[first]));
+      int[] IDs = new int[16];
+      int IDCount = 0;
+      int end = first + size;
+      for (int i = 0; i < ranges.length; i += 2) {
+         int start = ranges[i];
+         for (int slot = first + firstIndexOnOrBefore(ranges[i + 1]);
+              slot < end && dateOf(keys[slot]) >= start; slot++) {
+            if (!removed[slot]) {
+               if (IDCount == IDs.length) {
+                  IDs = Arrays.copyOf(IDs, IDCount * 2);
+               }
+               IDs[IDCount++] = IDOf(keys[slot]);
+            }
+         }
+      }
+      return Arrays.copyOf(IDs, IDCount);
+   }
+
+   // post: returns the index of the given key, or, if this index doesn't
+   //       contain it, -(the index it would be inserted at) - 1
+   private int indexOf(long key) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+         int middle = (low + high) >>> 1;
+         long middleKey = keys[first + middle];
+         if (middleKey == key) {
+            return middle;
+         } else if (middleKey > key) {
+            low = middle + 1;
+         } else {
+            high = middle - 1;
+         }
+      }
+      return -(low + 1);
+   }
+
+   // post: returns the index of the first key whose date paid is on or
+   //       before the given epoch day, or size if there isn't one
+   private int firstIndexOnOrBefore(int epochDay) {
+      long target = toKey(epochDay, Integer.MAX_VALUE);
+      int low = 0;
+      int high = size;
+      while (low < high) {
+         int middle = (low + high) >>> 1;
+         if (keys[first + middle] > target) {
+            low = middle + 1;
+         } else {
+            high = middle;
+         }
+      }
+      return low;
+   }
+
+   // pre:  0 <= index <= size, the key belongs at the given index
+   // post: inserts the given key at the given index, moving the keys on the
+   //       side of it that has fewer
+   private void insertAt(int index, long key) {
+      if (index < size - index) {
+         if (first == 0) {
+            recenter();
+         }
+         System.arraycopy(keys, first, keys, first - 1, index);
+         System.arraycopy(removed, first, removed, first - 1, index);
+         first--;
+      } else {
+         if (first + size == keys.length) {
+            recenter();
+         }
+         int slot = first + index;
+         System.arraycopy(keys, slot, keys, slot + 1, size - index);
+         System.arraycopy(removed, slot, removed, slot + 1, size - index);
+      }
+      keys[first + index] = key;
+      removed[first + index] = false;
+      size++;
+   }
+
+   // post: moves the keys to the middle of their array, first doubling its
+   //       capacity if they take up half of it or more, so that there is a
+   //       free slot on both sides of them
+   private void recenter() {
+      int capacity = (size >= keys.length / 2) ? keys.length * 2
+                                               : keys.length;
+      long[] movedKeys = new long[capacity];
+      boolean[] movedRemoved = new boolean[capacity];
+      int movedFirst = (capacity - size) / 2;
+      System.arraycopy(keys, first, movedKeys, movedFirst, size);
+      System.arraycopy(removed, first, movedRemoved, movedFirst, size);
+      keys = movedKeys;
+      removed = movedRemoved;
+      first = movedFirst;
+   }
+
+   // post: drops the keys marked as removed in a single pass, keeping the
+   //       order of the rest
+   private void dropRemoved() {
+      int kept = first;
+      for (int slot = first; slot < first + size; slot++) {
+         if (!removed[slot]) {
+            keys[kept] = keys[slot];
+            removed[kept] = false;
+            kept++;
+         }
+      }
+      size -= removedCount;
+      removedCount = 0;
+   }
+
+   // post: returns the key of the bill with the given date paid and ID,
+   //       ordering keys by date paid, then by ID
+   private static long toKey(int datePaid, int ID) {
+      return ((long) datePaid << 32) | ((long) ID - Integer.MIN_VALUE);
+   }
+
+   // post: returns the date paid (epoch day) of the given key
+   private static int dateOf(long key) {
+      return (int) (key >> 32);
+   }
+
+   // post: returns the ID of the given key
+   private static int IDOf(long key) {
+      return (int) (key + Integer.MIN_VALUE);
+   }
+
+}
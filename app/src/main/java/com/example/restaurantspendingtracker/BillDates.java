@@ -0,0 +1,204 @@
+/*
+ * Class used for converting the dates of bills between the "MM/dd/yyyy"
+ * format shown to the user and the epoch day (number of days since
+ * 01/01/1970) stored in the database.
+ *
+ * The conversions are done arithmetically (proleptic Gregorian calendar) so
+ * they don't need a Calendar or SimpleDateFormat object per call.
+ */
+
+package com.example.restaurantspendingtracker;
+
+public final class BillDates {
+
+   // returned by the parsing methods when the given date isn't valid
+   public static final int INVALID = Integer.MIN_VALUE;
+
+   // layout of a packed date: the day in the lowest 5 bits, the month in
+   // the next 4 and the (signed) year in the rest
+   public static final int DAY_MASK = 0x1F;
+   public static final int MONTH_SHIFT = 5;
+   public static final int MONTH_MASK = 0xF;
+   public static final int YEAR_SHIFT = 9;
+
+   private BillDates() {
+   }
+
+   // pre:  the given month (1-12), day, and year form a valid date
+   // post: returns the number of days between 01/01/1970 and the given date
+   public static int toEpochDay(int year, int month, int day) {
+      int y = (month <= 2) ? year - 1 : year;
+      int era = floorDiv(y, 400);
+      int yearOfEra = y - era * 400;
+      int monthFromMarch = (month + 9) % 12;
+      int dayOfYear = (153 * monthFromMarch + 2) / 5 + day - 1;
+      int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100
+                     + dayOfYear;
+      return era * 146097 + dayOfEra - 719468;
+   }
+
+   // post: returns the year of the given epoch day
+   public static int yearOf(int epochDay) {
+      return toCivil(epochDay) / 10000;
+   }
+
+   // post: returns the month (1-12) of the given epoch day
+   public static int monthOf(int epochDay) {
+      return (toCivil(epochDay) / 100) % 100;
+   }
+
+   // post: returns the day of the month of the given epoch day
+   public static int dayOf(int epochDay) {
+      return toCivil(epochDay) % 100;
+   }
+
+   // post: returns the given epoch day as yyyyMMdd packed into a single int
+   //       (e.g. 09/15/2019 is returned as 20190915)
+   public static int toCivil(int epochDay) {
+      int packed = toPackedDate(epochDay);
+      return (packed >> YEAR_SHIFT) * 10000
+             + ((packed >> MONTH_SHIFT) & MONTH_MASK) * 100
+             + (packed & DAY_MASK);
+   }
+
+   // post: returns the given epoch day as its year, month and day packed
+   //       into the bits of a single int (see YEAR_SHIFT, MONTH_SHIFT and
+   //       DAY_MASK), so that components can be compared with a mask
+   public static int toPackedDate(int epochDay) {
+      int z = epochDay + 719468;
+      int era = floorDiv(z, 146097);
+      int dayOfEra = z - era * 146097;
+      int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524
+                       - dayOfEra / 146096) / 365;
+      int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4
+                                  - yearOfEra / 100);
+      int monthFromMarch = (5 * dayOfYear + 2) / 153;
+      int day = dayOfYear - (153 * monthFromMarch + 2) / 5 + 1;
+      int month = (monthFromMarch < 10) ? monthFromMarch + 3
+                                        : monthFromMarch - 9;
+      int year = yearOfEra + era * 400 + ((month <= 2) ? 1 : 0);
+      return packDate(year, month, day);
+   }
+
+   // post: returns the given year, month (1-12) and day packed the way
+   //       toPackedDate() packs them
+   public static int packDate(int year, int month, int day) {
+      return (year << YEAR_SHIFT) | (month << MONTH_SHIFT) | day;
+   }
+
+   // post: returns true if the given year is a leap year, returns false
+   //       otherwise
+   public static boolean isLeapYear(int year) {
+      return (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+   }
+
+   // pre:  the given month is between 1 and 12
+   // post: returns the number of days in the given month of the given year
+   public static int daysInMonth(int year, int month) {
+      switch (month) {
+         case 2:
+            return isLeapYear(year) ? 29 : 28;
+         case 4:
+         case 6:
+         case 9:
+         case 11:
+            return 30;
+         default:
+            return 31;
+      }
+   }
+
+   // post: returns the epoch day of the given date if it follows the format
+   //       "[M]M/[d]d/yyyy" and is a real date, returns INVALID otherwise
+   public static int parseEpochDay(CharSequence date) {
+      return parseEpochDay(date, 0, date.length());
+   }
+
+   // post: same as parseEpochDay(CharSequence), but only looks at the
+   //       characters of the given date between 'start' (inclusive) and 'end'
+   //       (exclusive)
+   public static int parseEpochDay(CharSequence date, int start, int end) {
+      int firstSlash = indexOf(date, '/', start, end);
+      int secondSlash = indexOf(date, '/', firstSlash + 1, end);
+      if (firstSlash == -1 || secondSlash == -1) {
+         return INVALID;
+      }
+      int month = parseDigits(date, start, firstSlash);
+      int day = parseDigits(date, firstSlash + 1, secondSlash);
+      int year = parseDigits(date, secondSlash + 1, end);
+      if (month < 1 || month > 12 || year < 0 || day < 1
+              || day > daysInMonth(year, month)) {
+         return INVALID;
+      }
+      return toEpochDay(year, month, day);
+   }
+
+   // post: returns the given epoch day in the format "MM/dd/yyyy"
+   public static String format(int epochDay) {
+      StringBuilder formatted = new StringBuilder(10);
+      appendFormatted(formatted, epochDay);
+      return formatted.toString();
+   }
+
+   // post: appends the given epoch day in the format "MM/dd/yyyy" to the
+   //       given StringBuilder
+   public static void appendFormatted(StringBuilder builder, int epochDay) {
+      int civil = toCivil(epochDay);
+      int year = civil / 10000;
+      int month = (civil / 100) % 100;
+      int day = civil % 100;
+      builder.append((char) ('0' + month / 10))
+             .append((char) ('0' + month % 10)).append('/')
+             .append((char) ('0' + day / 10))
+             .append((char) ('0' + day % 10)).append('/');
+      if (year < 1000) {
+         builder.append(year < 10 ? "000" : year < 100 ? "00" : "0");
+      }
+      builder.append(year);
+   }
+
+   // post: returns the index of the first 'target' in the given characters
+   //       between 'start' (inclusive) and 'end' (exclusive), or -1 if there
+   //       isn't one
+   private static int indexOf(CharSequence chars, char target, int start,
+                              int end) {
+      if (start < 0) {
+         return -1;
+      }
+      for (int i = start; i < end; i++) {
+         if (chars.charAt(i) == target) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   // post: returns 'dividend' / 'divisor' rounded towards negative infinity
+   //       (Math.floorDiv isn't available on older versions of Android)
+   private static int floorDiv(int dividend, int divisor) {
+      int quotient = dividend / divisor;
+      if (dividend % divisor != 0 && (dividend ^ divisor) < 0) {
+         quotient--;
+      }
+      return quotient;
+   }
+
+   // post: returns the non-negative number written with 1 to 4 digits
+   //       between 'start' (inclusive) and 'end' (exclusive), or -1 if those
+   //       characters aren't such a number
+   private static int parseDigits(CharSequence chars, int start, int end) {
+      if (end <= start || end - start > 4) {
+         return -1;
+      }
+      int value = 0;
+      for (int i = start; i < end; i++) {
+         char c = chars.charAt(i);
+         if (c < '0' || c > '9') {
+            return -1;
+         }
+         value = value * 10 + (c - '0');
+      }
+      return value;
+   }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Class used for rendering the display of a bill shown in the bill history:
+ * "([MM]/[dd]/[yyyy]) Spent: [amount paid]; Allowed: [money allowed]".
+ *
+ * Displays aren't stored anywhere: they are rendered from the bill's date
+ * and amounts into a StringBuilder the caller reuses, when a row is bound or
+ * a bill is searched in memory. The database's search index renders the same
+ * text in SQL (see DatabaseHelper), so both searches agree.
+ */
+
+package com.example.restaurantspendingtracker;
+
+public final class BillDisplays {
+
+   public static final String SPENT_LABEL = ") Spent: ";
+   public static final String ALLOWED_LABEL = "; Allowed: ";
+
+   // longest display: "(" and a date, then two amounts of up to 21
+   // characters each
+   public static final int MAX_LENGTH = 11 + SPENT_LABEL.length()
+                                        + ALLOWED_LABEL.length() + 2 * 21;
+
+   private BillDisplays() {
+   }
+
+   // pre:  'datePaid' is an epoch day
+   // post: appends the display of a bill with the given date and amounts (in
+   //       cents) to the given StringBuilder
+   public static void appendDisplay(StringBuilder builder, int datePaid,
+                                    long amountPaid, long moneyAllowed) {
+      builder.append('(');
+      BillDates.appendFormatted(builder, datePaid);
+      builder.append(SPENT_LABEL);
+      Money.appendFormatted(builder, amountPaid);
+      builder.append(ALLOWED_LABEL);
+      Money.appendFormatted(builder, moneyAllowed);
+   }
+
+   // pre:  'datePaid' is an epoch day
+   // post: returns the display of a bill with the given date and amounts (in
+   //       cents)
+   public static String format(int datePaid, long amountPaid,
+                               long moneyAllowed) {
+      StringBuilder display = new StringBuilder(MAX_LENGTH);
+      appendDisplay(display, datePaid, amountPaid, moneyAllowed);
+      return display.toString();
+   }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * Class used for holding the IDs of the bills in-view while searching the
+ * bill history, in decreasing order (the order they are shown in).
+ *
+ * Like the columns of a BillStore, the IDs are kept in a gap buffer, so
+ * removing or putting back a bill only moves the IDs between it and the
+ * previous removal or insertion, and the position of a bill is found from
+ * its ID by a binary search.
+ */
+
+package com.example.restaurantspendingtracker;
+
+public final class BillIDList {
+
+   private static final int MIN_CAPACITY = 16;
+
+   private int[] IDs;
+   private int size;
+   private int gapStart; // position (and slot) at which the gap starts
+   private int gapLength; // number of free slots in the gap; the slots after
+                          // the last ID are free too but not counted here
+
+   // pre:  'capacity' >= 0
+   // post: constructs an empty BillIDList with room for the given number of
+   //       IDs
+   public BillIDList(int capacity) {
+      IDs = new int[Math.max(MIN_CAPACITY, capacity)];
+   }
+
+   // post: returns the number of IDs in this list
+   public int size() {
+      return size;
+   }
+
+   // pre:  0 <= position < size()
+   // post: returns the ID at the given position
+   public int get(int position) {
+      return IDs[slotOf(position)];
+   }
+
+   // post: returns the position of the given ID, or, if this list doesn't
+   //       contain it, -(the position it would be inserted at) - 1 (which is
+   //       negative)
+   public int indexOf(int ID) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+         int middle = (low + high) >>> 1;
+         int middleID = IDs[slotOf(middle)];
+         if (middleID == ID) {
+            return middle;
+         } else if (middleID > ID) {
+            low = middle + 1;
+         } else {
+            high = middle - 1;
+         }
+      }
+      return -(low + 1);
+   }
+
+   // pre:  'ID' is less than every ID in this list
+   // post: adds the given ID to the end of this list
+   public void append(int ID) {
+      if (size + gapLength == IDs.length) {
+         if (gapLength == 0) {
+            grow();
+         } else {
+            moveGap(size); // a gap at the end is just free slots
+            gapLength = 0;
+         }
+      }
+      IDs[size + gapLength] = ID;
+      size++;
+   }
+
+   // pre:  this list doesn't contain the given ID
+   // post: adds the given ID at the position that keeps the IDs in
+   //       decreasing order and returns that position
+   public int insert(int ID) {
+      int position = -(indexOf(ID) + 1);
+      if (gapLength == 0) {
+         openGap(position);
+      } else {
+         moveGap(position);
+      }
+      IDs[gapStart] = ID;
+      gapStart++;
+      gapLength--;
+      size++;
+      return position;
+   }
+
+   // pre:  0 <= position < size()
+   // post: removes the ID at the given position
+   public void remove(int position) {
+      moveGap(position);
+      gapLength++;
+      size--;
+   }
+
+   // pre:  0 <= position < size()
+   // post: returns the slot of the ID at the given position
+   private int slotOf(int position) {
+      return (position < gapStart) ? position : position + gapLength;
+   }
+
+   // pre:  0 <= position <= size()
+   // post: moves the gap so that it starts at the given position, moving the
+   //       IDs between its old and new position across it
+   private void moveGap(int position) {
+      if (gapLength == 0) {
+         gapStart = position; // an empty gap can start anywhere
+      } else if (position < gapStart) {
+         System.arraycopy(IDs, position, IDs, position + gapLength,
+                          gapStart - position);
+      } else if (position > gapStart) {
+         System.arraycopy(IDs, gapStart + gapLength, IDs, gapStart,
+                          position - gapStart);
+      }
+      gapStart = position;
+   }
+
+   // pre:  0 <= position <= size(), 'gapLength' is 0
+   // post: opens a gap at the given position out of the free slots after the
+   //       last ID (growing the list first if there are none), moving the IDs
+   //       from the given position onwards to the end of the list
+   private void openGap(int position) {
+      if (size == IDs.length) {
+         grow();
+      }
+      int movedCount = size - position;
+      System.arraycopy(IDs, position, IDs, IDs.length - movedCount,
+                       movedCount);
+      gapStart = position;
+      gapLength = IDs.length - size;
+   }
+
+   // post: doubles the capacity of this list, closing the gap
+   private void grow() {
+      int[] grownIDs = new int[IDs.length * 2];
+      System.arraycopy(IDs, 0, grownIDs, 0, gapStart);
+      System.arraycopy(IDs, gapStart + gapLength, grownIDs, gapStart,
+                       size - gapStart);
+      IDs = grownIDs;
+      gapLength = 0;
+   }
+
+}
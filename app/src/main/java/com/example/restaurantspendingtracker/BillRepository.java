@@ -0,0 +1,648 @@
+/*
+ * Class used for accessing the bill history database without blocking the
+ * UI thread.
+ *
+ * Every DatabaseHelper call goes through here and runs on a background
+ * thread: writes run one at a time, in order, on a single writer thread, and
+ * reads run on a small pool of reader threads. Results are delivered to a
+ * Callback on the main thread, as is the failure of any call that throws
+ * (which is logged too). Calls take effect in the order they are made:
+ * a read sees every write requested before it (e.g. the total read after a
+ * delete includes that delete) and none requested after it, so the callbacks
+ * of a read and a write arrive in the order they were requested.
+ *
+ * The repository also keeps a DailyTotalsTree of every bill, built from the
+ * database the first time a date range's totals are asked for, so that any
+ * range can be summed in logarithmic time. Adding or removing bills (one or
+ * a batch of swiped bills) updates the tree; other bulk changes discard it,
+ * to be rebuilt on the next request.
+ *
+ * There is one BillRepository per process, shared by every activity.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.core.os.TraceCompat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+public class BillRepository {
+
+   // passed as the limit to load every remaining bill at once
+   public static final int NO_LIMIT = -1;
+
+   private static final String TAG = "BillRepository";
+
+   private static final int READER_THREAD_COUNT = 2;
+
+   private static BillRepository instance;
+
+   private final Context context; // application context
+   private final DatabaseHelper billDB;
+   private final ExecutorService writeExecutor;
+   private final ExecutorService readExecutor;
+   private final Executor mainExecutor;
+
+   private Future<?> lastWrite; // most recently requested write
+   private List<Future<?>> readsSinceLastWrite = new ArrayList<>();
+
+   // totals of every bill by day, or null if not built (or discarded since);
+   // only accessed while holding 'dailyTotalsLock'
+   private DailyTotalsTree dailyTotals;
+   private final Object dailyTotalsLock = new Object();
+
+   /*
+    * Receives the result of a BillRepository call on the main thread, or the
+    * failure that stopped it.
+    */
+   public abstract static class Callback<T> {
+
+      public abstract void onResult(T result);
+
+      // post: handles the failure of the call (already logged); does nothing
+      //       unless overridden
+      public void onError(RuntimeException failure) {
+      }
+
+   }
+
+   // post: constructs a BillRepository that runs writes on 'writeExecutor',
+   //       reads on 'readExecutor' and callbacks on 'mainExecutor', keeping
+   //       its files in the given context
+   BillRepository(Context context, DatabaseHelper billDB,
+                  ExecutorService writeExecutor, ExecutorService readExecutor,
+                  Executor mainExecutor) {
+      this.context = context.getApplicationContext();
+      this.billDB = billDB;
+      this.writeExecutor = writeExecutor;
+      this.readExecutor = readExecutor;
+      this.mainExecutor = mainExecutor;
+   }
+
+   // post: returns the BillRepository of this process, creating it (without
+   //       opening the database yet) on the first call
+   public static synchronized BillRepository getInstance(Context context) {
+      if (instance == null) {
+         final Handler mainHandler = new Handler(Looper.getMainLooper());
+         instance = new BillRepository
+                 (context, DatabaseHelper.getInstance(context),
+                  Executors.newSingleThreadExecutor(),
+                  Executors.newFixedThreadPool(READER_THREAD_COUNT),
+                  new Executor() {
+                     @Override
+                     public void execute(Runnable command) {
+                        mainHandler.post(command);
+                     }
+                  });
+      }
+      return instance;
+   }
+
+   // pre:  'datePaid' is an epoch day
+   // post: adds a bill with the given date and amounts (in cents) to the
+   //       database, then calls 'callback' (if not null)
+   public Future<?> addBill(final int datePaid, final long amountPaid,
+                            final long moneyAllowed,
+                            Callback<Void> callback) {
+      return write(new Task<Void>() {
+         @Override
+         public Void run() {
+            billDB.addBillData(datePaid, amountPaid, moneyAllowed);
+            DailyTotalsTree builtDailyTotals = getBuiltDailyTotals();
+            if (builtDailyTotals != null) {
+               builtDailyTotals.add(datePaid, amountPaid, moneyAllowed);
+            }
+            return null;
+         }
+      }, callback);
+   }
+
+   // pre:  'bills' isn't used by anyone else until 'callback' is called
+   // post: adds every remaining bill of the given iterator to the database in
+   //       transactions of DatabaseHelper.BULK_INSERT_CHUNK_SIZE bills, then
+   //       calls 'callback' (if not null) with how many were inserted and how
+   //       fast; 'listener' (if not null) is told the number of bills
+   //       inserted so far on the main thread after each transaction
+   public Future<?> addBills(final Iterator<Bill> bills,
+                             DatabaseHelper.BulkInsertListener listener,
+                             Callback<BulkInsertResult> callback) {
+      final DatabaseHelper.BulkInsertListener mainThreadListener =
+              (listener == null) ? null : bulkInsertOnMainThread(listener);
+      return write(new Task<BulkInsertResult>() {
+         @Override
+         public BulkInsertResult run() {
+            try {
+               return billDB.addBills(bills, mainThreadListener);
+            } finally {
+               discardDailyTotals();
+            }
+         }
+      }, callback);
+   }
+
+   // post: deletes the bill belonging to the given ID from the database, then
+   //       calls 'callback' (if not null)
+   public Future<?> removeBill(final int ID, Callback<Void> callback) {
+      return write(new Task<Void>() {
+         @Override
+         public Void run() {
+            DailyTotalsTree builtDailyTotals = getBuiltDailyTotals();
+            Bill removedBill = (builtDailyTotals == null) ? null
+                                                          : billDB.getBill(ID);
+            billDB.removeBill(ID);
+            if (removedBill != null) {
+               builtDailyTotals.remove(removedBill.getDatePaid(),
+                                       removedBill.getAmountPaid(),
+                                       removedBill.getMoneyAllowed());
+            }
+            return null;
+         }
+      }, callback);
+   }
+
+   // pre:  'bills' isn't changed until 'callback' is called
+   // post: deletes the given bills from the database in a single
+   //       transaction, then calls 'callback' (if not null) with the number
+   //       of bills deleted; the daily totals, if built, are updated with
+   //       each deleted bill rather than rebuilt
+   public Future<?> removeBills(final BillStore bills,
+                                Callback<Integer> callback) {
+      return write(new Task<Integer>() {
+         @Override
+         public Integer run() {
+            DailyTotalsTree builtDailyTotals = getBuiltDailyTotals();
+            BillStore deletedBills = billDB.removeBills(bills);
+            if (builtDailyTotals != null) {
+               for (int i = 0; i < deletedBills.size(); i++) {
+                  builtDailyTotals.remove(deletedBills.getDatePaid(i),
+                                          deletedBills.getAmountPaid(i),
+                                          deletedBills.getMoneyAllowed(i));
+               }
+            }
+            return deletedBills.size();
+         }
+      }, callback);
+   }
+
+   // post: deletes every bill whose date paid matches the given pattern from
+   //       the database, then calls 'callback' (if not null) with the number
+   //       of bills deleted
+   public Future<?> removeBillsMatching(final DatePattern pattern,
+                                        Callback<Integer> callback) {
+      return write(new Task<Integer>() {
+         @Override
+         public Integer run() {
+            try {
+               return billDB.removeBillsMatching(pattern);
+            } finally {
+               discardDailyTotals();
+            }
+         }
+      }, callback);
+   }
+
+   // post: purges the rows of the deleted bills from the database,
+   //       DatabaseHelper.PURGE_CHUNK_SIZE bills per write so that the writes
+   //       requested meanwhile run between the chunks, then hands the pages
+   //       freed back to the file system and calls 'callback' (if not null)
+   //       with the number of bills purged
+   public void compact(Callback<Integer> callback) {
+      purgeDeletedBillsAfter(0, 0, callback);
+   }
+
+   // post: purges the next chunk of deleted bills whose IDs are greater than
+   //       'afterID', then requests the chunk after it, or the reclaiming of
+   //       the free pages once every deleted bill is purged; 'purgedCount'
+   //       bills were purged before it
+   private void purgeDeletedBillsAfter(final int afterID,
+                                       final int purgedCount,
+                                       final Callback<Integer> callback) {
+      write(new Task<Void>() {
+         @Override
+         public Void run() {
+            int[] purgedIDs = billDB.purgeDeletedBills
+                    (afterID, DatabaseHelper.PURGE_CHUNK_SIZE);
+            final int newPurgedCount = purgedCount + purgedIDs.length;
+            if (purgedIDs.length == DatabaseHelper.PURGE_CHUNK_SIZE) {
+               purgeDeletedBillsAfter(purgedIDs[purgedIDs.length - 1],
+                                      newPurgedCount, callback);
+            } else {
+               write(new Task<Integer>() {
+                  @Override
+                  public Integer run() {
+                     billDB.reclaimFreePages();
+                     return newPurgedCount;
+                  }
+               }, callback);
+            }
+            return null;
+         }
+      }, new Callback<Void>() {
+         @Override
+         public void onResult(Void result) {
+            // the next chunk (or the reclaiming) calls 'callback'
+         }
+
+         @Override
+         public void onError(RuntimeException failure) {
+            if (callback != null) {
+               callback.onError(failure);
+            }
+         }
+      });
+   }
+
+   // post: calls 'callback' with the sum of the leftover money (in cents) of
+   //       all bills in the database
+   public Future<?> getTotalLeftoverCents(Callback<Long> callback) {
+      return read(new Task<Long>() {
+         @Override
+         public Long run() {
+            // traced since the first call at startup also opens (and on the
+            // first run creates) the database
+            TraceCompat.beginSection("BillRepository.getTotalLeftoverCents");
+            try {
+               return billDB.getTotalLeftoverCents();
+            } finally {
+               TraceCompat.endSection();
+            }
+         }
+      }, callback);
+   }
+
+   // post: calls 'callback' with the totals of the bills paid in the period
+   //       with the given key (see SpendingRollup)
+   public Future<?> getRollup(final int period,
+                              Callback<SpendingRollup> callback) {
+      return read(new Task<SpendingRollup>() {
+         @Override
+         public SpendingRollup run() {
+            return billDB.getRollup(period);
+         }
+      }, callback);
+   }
+
+   // post: calls 'callback' with the totals of the bills paid from
+   //       'firstDay' to 'lastDay' (inclusive epoch days); takes O(log d)
+   //       time for a history spanning d days, once the daily totals are
+   //       built
+   public Future<?> getDateRangeTotals(final int firstDay, final int lastDay,
+                                       Callback<DateRangeTotals> callback) {
+      return read(new Task<DateRangeTotals>() {
+         @Override
+         public DateRangeTotals run() {
+            return getDailyTotals().getTotals(firstDay, lastDay);
+         }
+      }, callback);
+   }
+
+   // post: recomputes the database's rollups from its bills, then calls
+   //       'callback' (if not null) with the number of periods with bills
+   public Future<?> rebuildRollups(Callback<Integer> callback) {
+      return write(new Task<Integer>() {
+         @Override
+         public Integer run() {
+            try {
+               return billDB.rebuildRollups();
+            } finally {
+               discardDailyTotals();
+            }
+         }
+      }, callback);
+   }
+
+   // post: calls 'callback' with a BillStore of at most 'limit' (or every,
+   //       if 'limit' is NO_LIMIT) bills whose IDs are less than 'beforeID',
+   //       newest first
+   public Future<?> loadBillsBefore(final int beforeID, final int limit,
+                                    Callback<BillStore> callback) {
+      return read(new Task<BillStore>() {
+         @Override
+         public BillStore run() {
+            long start = Metrics.start();
+            BillStore page = new BillStore();
+            Cursor pageCursor = billDB.getBillsBefore(beforeID, limit);
+            try {
+               while (pageCursor.moveToNext()) {
+                  page.append(pageCursor.getInt(0), pageCursor.getInt(1),
+                              pageCursor.getLong(2), pageCursor.getLong(3));
+               }
+            } finally {
+               pageCursor.close();
+            }
+            Metrics.stop(Metrics.DB_LOAD_PAGE, start, page.size());
+            return page;
+         }
+      }, callback);
+   }
+
+   // pre:  !query.matchesEverything()
+   // post: calls 'callback' with the IDs of the bills matching the given
+   //       query, newest first; cancelling the returned Future before the
+   //       search starts skips it
+   public Future<?> findMatchingIDs(final BillSearchQuery query,
+                                    Callback<int[]> callback) {
+      return read(new Task<int[]>() {
+         @Override
+         public int[] run() {
+            return billDB.findMatchingIDs(query);
+         }
+      }, callback);
+   }
+
+   // post: writes every bill in the database to the CSV file of the given
+   //       name (see BillCsv and getTransferFile()), then calls 'callback'
+   //       (if not null) with the outcome; 'listener' (if not null) is told
+   //       the number of bills written so far on the main thread as the
+   //       export goes
+   public Future<?> exportCsv(final String fileName,
+                              BillTransfer.ProgressListener listener,
+                              Callback<BillTransfer.Result> callback) {
+      final BillTransfer.ProgressListener mainThreadListener =
+              (listener == null) ? null : progressOnMainThread(listener);
+      return read(new Task<BillTransfer.Result>() {
+         @Override
+         public BillTransfer.Result run() {
+            Cursor bills = billDB.getAllBillsOldestFirst();
+            try {
+               return BillCsv.export(bills, getTransferFile(fileName),
+                                     mainThreadListener);
+            } finally {
+               bills.close();
+            }
+         }
+      }, callback);
+   }
+
+   // post: adds every valid bill of the CSV file of the given name (see
+   //       BillCsv and getTransferFile()) to the database, then calls
+   //       'callback' (if not null) with the outcome; 'listener' (if not
+   //       null) is told the number of bills imported so far on the main
+   //       thread after each transaction
+   public Future<?> importCsv(final String fileName,
+                              BillTransfer.ProgressListener listener,
+                              Callback<BillTransfer.Result> callback) {
+      final BillTransfer.ProgressListener mainThreadListener =
+              (listener == null) ? null : progressOnMainThread(listener);
+      return write(new Task<BillTransfer.Result>() {
+         @Override
+         public BillTransfer.Result run() {
+            try {
+               return BillCsv.importInto(billDB, getTransferFile(fileName),
+                                         mainThreadListener);
+            } finally {
+               discardDailyTotals();
+            }
+         }
+      }, callback);
+   }
+
+   // post: writes a snapshot of every bill in the database to the file of
+   //       the given name (see BillSnapshot and getTransferFile()), then
+   //       calls 'callback' (if not null) with the outcome; 'listener' (if
+   //       not null) is told the number of bills written so far on the main
+   //       thread as the backup goes
+   public Future<?> backUp(final String fileName,
+                           BillTransfer.ProgressListener listener,
+                           Callback<BillTransfer.Result> callback) {
+      final BillTransfer.ProgressListener mainThreadListener =
+              (listener == null) ? null : progressOnMainThread(listener);
+      return read(new Task<BillTransfer.Result>() {
+         @Override
+         public BillTransfer.Result run() {
+            Cursor bills = billDB.getAllBillsOldestFirst();
+            try {
+               return BillSnapshot.write(bills, getTransferFile(fileName),
+                                         mainThreadListener);
+            } finally {
+               bills.close();
+            }
+         }
+      }, callback);
+   }
+
+   // post: replaces every bill in the database with the bills of the
+   //       snapshot in the file of the given name (see BillSnapshot and
+   //       getTransferFile()), then calls 'callback' (if not null) with the
+   //       outcome; 'listener' (if not null) is told the number of bills
+   //       inserted so far on the main thread after each chunk
+   public Future<?> restore(final String fileName,
+                            BillTransfer.ProgressListener listener,
+                            Callback<BillTransfer.Result> callback) {
+      final BillTransfer.ProgressListener mainThreadListener =
+              (listener == null) ? null : progressOnMainThread(listener);
+      return write(new Task<BillTransfer.Result>() {
+         @Override
+         public BillTransfer.Result run() {
+            try {
+               return BillSnapshot.restore(billDB, getTransferFile(fileName),
+                                           mainThreadListener);
+            } finally {
+               discardDailyTotals();
+            }
+         }
+      }, callback);
+   }
+
+   // post: returns the daily totals of every bill, building them from the
+   //       database if they aren't built
+   private DailyTotalsTree getDailyTotals() {
+      synchronized (dailyTotalsLock) {
+         if (dailyTotals == null) {
+            dailyTotals = billDB.buildDailyTotals();
+         }
+         return dailyTotals;
+      }
+   }
+
+   // post: returns the daily totals of every bill, or null if they aren't
+   //       built
+   private DailyTotalsTree getBuiltDailyTotals() {
+      synchronized (dailyTotalsLock) {
+         return dailyTotals;
+      }
+   }
+
+   // post: discards the daily totals, so they are rebuilt from the database
+   //       the next time they are needed
+   private void discardDailyTotals() {
+      synchronized (dailyTotalsLock) {
+         dailyTotals = null;
+      }
+   }
+
+   // post: returns the file of the given name in the app's external files
+   //       directory (reachable by the user over USB), or in its internal one
+   //       if external storage isn't available; may touch the disk, so is
+   //       only called from background threads
+   private File getTransferFile(String fileName) {
+      File directory = context.getExternalFilesDir(null);
+      if (directory == null) {
+         directory = context.getFilesDir();
+      }
+      return new File(directory, fileName);
+   }
+
+   /*
+    * Work done on a background thread, producing a result for a Callback.
+    */
+   private interface Task<T> {
+      T run();
+   }
+
+   // post: runs the given task on the writer thread once every write and
+   //       read requested before it is done, then delivers its result to
+   //       'callback' (if not null) on the main thread
+   private synchronized <T> Future<?> write(Task<T> task,
+                                            Callback<T> callback) {
+      final List<Future<?>> precedingReads = readsSinceLastWrite;
+      final Runnable delivery = deliver(task, callback);
+      FutureTask<Void> write = new FutureTask<>(new Runnable() {
+         @Override
+         public void run() {
+            for (Future<?> read : precedingReads) {
+               awaitQuietly(read);
+            }
+            delivery.run();
+         }
+      }, null);
+      lastWrite = write;
+      readsSinceLastWrite = new ArrayList<>();
+      writeExecutor.execute(write);
+      return write;
+   }
+
+   // post: runs the given task on a reader thread once every write requested
+   //       before it is done, then delivers its result to 'callback' (if not
+   //       null) on the main thread
+   private synchronized <T> Future<?> read(Task<T> task,
+                                           Callback<T> callback) {
+      final Future<?> precedingWrite = lastWrite;
+      final Runnable delivery = deliver(task, callback);
+      Future<?> read = readExecutor.submit(new Runnable() {
+         @Override
+         public void run() {
+            awaitQuietly(precedingWrite);
+            delivery.run();
+         }
+      });
+      for (int i = readsSinceLastWrite.size() - 1; i >= 0; i--) {
+         if (readsSinceLastWrite.get(i).isDone()) {
+            readsSinceLastWrite.remove(i); // nothing left to wait for
+         }
+      }
+      readsSinceLastWrite.add(read);
+      return read;
+   }
+
+   // post: returns a Runnable that runs the given task and posts its result
+   //       to 'callback' (if not null) on the main thread; if the task
+   //       throws, logs the failure, posts it to 'callback' instead and
+   //       rethrows it, so that the call's Future fails too
+   private <T> Runnable deliver(final Task<T> task,
+                                final Callback<T> callback) {
+      return new Runnable() {
+         @Override
+         public void run() {
+            final T result;
+            try {
+               result = task.run();
+            } catch (final RuntimeException failure) {
+               Log.e(TAG, "Database call failed", failure);
+               if (callback != null) {
+                  mainExecutor.execute(new Runnable() {
+                     @Override
+                     public void run() {
+                        callback.onError(failure);
+                     }
+                  });
+               }
+               throw failure;
+            }
+            if (callback != null) {
+               mainExecutor.execute(new Runnable() {
+                  @Override
+                  public void run() {
+                     callback.onResult(result);
+                  }
+               });
+            }
+         }
+      };
+   }
+
+   // post: returns a listener passing the progress it receives on to the given
+   //       listener on the main thread
+   private DatabaseHelper.BulkInsertListener bulkInsertOnMainThread
+           (final DatabaseHelper.BulkInsertListener listener) {
+      return new DatabaseHelper.BulkInsertListener() {
+         @Override
+         public void onBillsInserted(final int insertedCount) {
+            mainExecutor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  listener.onBillsInserted(insertedCount);
+               }
+            });
+         }
+      };
+   }
+
+   // post: returns a listener passing the progress it receives on to the given
+   //       listener on the main thread
+   private BillTransfer.ProgressListener progressOnMainThread
+           (final BillTransfer.ProgressListener listener) {
+      return new BillTransfer.ProgressListener() {
+         @Override
+         public void onProgress(final int billCount) {
+            mainExecutor.execute(new Runnable() {
+               @Override
+               public void run() {
+                  listener.onProgress(billCount);
+               }
+            });
+         }
+      };
+   }
+
+   // post: waits for the given call (if not null) to finish, ignoring how
+   //       it finished
+   private static void awaitQuietly(Future<?> call) {
+      if (call == null) {
+         return;
+      }
+      boolean interrupted = false;
+      while (true) {
+         try {
+            call.get();
+            break;
+         } catch (InterruptedException e) {
+            interrupted = true;
+         } catch (ExecutionException e) {
+            break;
+         } catch (CancellationException e) {
+            break;
+         }
+      }
+      if (interrupted) {
+         Thread.currentThread().interrupt();
+      }
+   }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Class used for turning the text typed in the ViewHistory activity's
+ * SearchView into a query for the database's full-text search index.
+ *
+ * The text is split into words the same way the index splits the bills
+ * (runs of letters, digits and non-ASCII characters, ignoring case), and a
+ * bill matches when its words contain the query's words in the same order,
+ * the last query word being allowed to be the start of a longer word (e.g.
+ * "spent 12" matches "Spent: 12.34"). The same rule is available in memory
+ * through matches() for bills that aren't in the index yet.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class BillSearchQuery {
+
+   private final String[] words; // lowercase words of the query, in order
+
+   private BillSearchQuery(String[] words) {
+      this.words = words;
+   }
+
+   // post: returns the BillSearchQuery for the given text (null is treated
+   //       as empty text)
+   public static BillSearchQuery parse(CharSequence text) {
+      List<String> words = new ArrayList<>();
+      if (text != null) {
+         int length = text.length();
+         int i = 0;
+         while (i < length) {
+            while (i < length && !isWordChar(text.charAt(i))) {
+               i++;
+            }
+            StringBuilder word = new StringBuilder();
+            while (i < length && isWordChar(text.charAt(i))) {
+               word.append(toLowerCase(text.charAt(i)));
+               i++;
+            }
+            if (word.length() > 0) {
+               words.add(word.toString());
+            }
+         }
+      }
+      return new BillSearchQuery(words.toArray(new String[0]));
+   }
+
+   // post: returns true if this query has no words (i.e. every bill matches
+   //       it), returns false otherwise
+   public boolean matchesEverything() {
+      return words.length == 0;
+   }
+
+   // post: returns true if every bill matching this query also matches the
+   //       given previous query (i.e. this query extends it, like "spent 12"
+   //       extends "spent 1"), returns false otherwise
+   public boolean isNarrowingOf(BillSearchQuery previous) {
+      String[] previousWords = previous.words;
+      if (previousWords.length == 0) {
+         return true;
+      }
+      if (words.length < previousWords.length) {
+         return false;
+      }
+      int last = previousWords.length - 1;
+      for (int i = 0; i < last; i++) {
+         if (!words[i].equals(previousWords[i])) {
+            return false;
+         }
+      }
+      return words[last].startsWith(previousWords[last]);
+   }
+
+   // pre:  !matchesEverything()
+   // post: returns the expression to pass to the full-text index's MATCH
+   //       operator: a phrase of this query's words whose last word is a
+   //       prefix
+   public String toMatchExpression() {
+      StringBuilder expression = new StringBuilder("\"");
+      for (int i = 0; i < words.length; i++) {
+         if (i > 0) {
+            expression.append(' ');
+         }
+         expression.append(words[i]);
+      }
+      return expression.append("*\"").toString();
+   }
+
+   // post: returns true if the given text matches this query under the same
+   //       rule as the full-text index, returns false otherwise; doesn't
+   //       allocate
+   public boolean matches(CharSequence text) {
+      if (words.length == 0) {
+         return true;
+      }
+      int length = text.length();
+      int i = 0;
+      while (i < length) {
+         while (i < length && !isWordChar(text.charAt(i))) {
+            i++;
+         }
+         if (i < length && phraseStartsAt(text, i)) {
+            return true;
+         }
+         while (i < length && isWordChar(text.charAt(i))) {
+            i++;
+         }
+      }
+      return false;
+   }
+
+   // pre:  the character of the given text at 'start' begins a word
+   // post: returns true if this query's words appear in order from 'start'
+   //       on, returns false otherwise
+   private boolean phraseStartsAt(CharSequence text, int start) {
+      int length = text.length();
+      int i = start;
+      for (int w = 0; w < words.length; w++) {
+         while (i < length && !isWordChar(text.charAt(i))) {
+            i++;
+         }
+         String word = words[w];
+         boolean isLastWord = (w == words.length - 1);
+         int j = 0;
+         while (j < word.length() && i < length
+                 && isWordChar(text.charAt(i))
+                 && toLowerCase(text.charAt(i)) == word.charAt(j)) {
+            i++;
+            j++;
+         }
+         if (j < word.length()) {
+            return false;
+         }
+         if (!isLastWord && i < length && isWordChar(text.charAt(i))) {
+            return false; // only the last word may be a prefix
+         }
+      }
+      return true;
+   }
+
+   // post: returns true if the given character is part of words according to
+   //       the full-text index's "simple" tokenizer, returns false otherwise
+   private static boolean isWordChar(char c) {
+      return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+              || (c >= '0' && c <= '9') || c >= 128;
+   }
+
+   // post: returns the given character with ASCII letters in lowercase, the
+   //       only case folding done by the "simple" tokenizer
+   private static char toLowerCase(char c) {
+      return (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+   }
+
+}
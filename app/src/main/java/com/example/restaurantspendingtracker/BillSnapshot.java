@@ -0,0 +1,314 @@
+/*
+ * Class used for backing up the bill history to, and restoring it from, a
+ * compact binary snapshot file.
+ *
+ * Only what can't be derived is stored (the date paid, amount paid and money
+ * allowed of each bill, oldest first; not the IDs or displays), and each
+ * number is stored in as few bytes as it needs:
+ *
+ *    header (HEADER_SIZE bytes, big-endian):
+ *       magic "RSBK", format version (1 byte), 3 reserved bytes,
+ *       bill count (8 bytes), CRC-32 of the body (4 bytes)
+ *    body, for each bill:
+ *       date paid minus the previous bill's date paid (the first bill's minus
+ *       0), amount paid and money allowed, each as a zigzag varint
+ *
+ * A bill usually takes 5-8 bytes, against 70 or so in the database.
+ *
+ * The snapshot is written through a FileChannel with a direct buffer and read
+ * back through a memory-mapped buffer, which is checked in full (size,
+ * checksum, bill count) before any bill is restored. The bills are then
+ * replaced in a single transaction, so a restore that fails partway leaves
+ * the history as it was.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+
+public final class BillSnapshot {
+
+   private static final byte[] MAGIC = {'R', 'S', 'B', 'K'};
+   private static final byte FORMAT_VERSION = 1;
+   private static final int HEADER_SIZE = 20;
+   private static final int COUNT_OFFSET = 8;
+   private static final int CRC_OFFSET = 16;
+
+   // longest encoding of a bill: three varints of up to 10 bytes each
+   private static final int MAX_BILL_SIZE = 30;
+
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   // number of bills written between reports of the backup's progress
+   private static final int PROGRESS_INTERVAL = 1000;
+
+   private BillSnapshot() {
+   }
+
+   // pre:  'bills' has the date paid, amount paid and money allowed (in that
+   //       order) of the bills to back up as its first three columns
+   // post: writes a snapshot of every bill of the given cursor to the given
+   //       file, replacing it only once the snapshot is complete; 'listener'
+   //       (if not null) is told the number of bills written every
+   //       PROGRESS_INTERVAL bills
+   public static BillTransfer.Result write
+           (Cursor bills, File file, BillTransfer.ProgressListener listener) {
+      long startNanos = System.nanoTime();
+      File partialFile = new File(file.getPath() + ".partial");
+      long billCount = 0;
+      try {
+         FileChannel channel = new RandomAccessFile(partialFile, "rw")
+                 .getChannel();
+         try {
+            channel.truncate(0);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            byte[] checksummed = new byte[BUFFER_SIZE];
+            CRC32 crc = new CRC32();
+            buffer.put(new byte[HEADER_SIZE]); // filled in once known
+
+            int previousDate = 0;
+            int bodyStart = HEADER_SIZE; // start of the body in 'buffer'
+            while (bills.moveToNext()) {
+               if (buffer.remaining() < MAX_BILL_SIZE) {
+                  flush(channel, buffer, bodyStart, crc, checksummed);
+                  bodyStart = 0;
+               }
+               int datePaid = bills.getInt(0);
+               putVarLong(buffer, zigzag(datePaid - (long) previousDate));
+               putVarLong(buffer, zigzag(bills.getLong(1)));
+               putVarLong(buffer, zigzag(bills.getLong(2)));
+               previousDate = datePaid;
+               billCount++;
+               if (listener != null && billCount % PROGRESS_INTERVAL == 0) {
+                  listener.onProgress((int) billCount);
+               }
+            }
+            flush(channel, buffer, bodyStart, crc, checksummed);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.put(MAGIC).put(FORMAT_VERSION).put(new byte[3]);
+            header.putLong(billCount).putInt((int) crc.getValue());
+            header.flip();
+            while (header.hasRemaining()) {
+               channel.write(header, header.position());
+            }
+            channel.force(false);
+         } finally {
+            channel.close();
+         }
+         if (!partialFile.renameTo(file)) {
+            throw new IOException("Couldn't replace " + file);
+         }
+      } catch (IOException e) {
+         partialFile.delete();
+         return new BillTransfer.Result(file, (int) billCount, 0, 0,
+                                        System.nanoTime() - startNanos, e);
+      }
+      if (listener != null) {
+         listener.onProgress((int) billCount);
+      }
+      return new BillTransfer.Result(file, (int) billCount, 0, 0,
+                                     System.nanoTime() - startNanos, null);
+   }
+
+   // post: replaces every bill in the given database with the bills of the
+   //       snapshot in the given file, added through the bulk insert in a
+   //       single outer transaction; 'listener' (if not null) is told the
+   //       number of bills inserted so far after each chunk; if the snapshot
+   //       isn't valid or the bills can't be inserted (e.g. the database is
+   //       full), the database is left untouched
+   public static BillTransfer.Result restore
+           (DatabaseHelper billDB, File file,
+            final BillTransfer.ProgressListener listener) {
+      long startNanos = System.nanoTime();
+      int restoredCount = 0;
+      try {
+         FileChannel channel = new FileInputStream(file).getChannel();
+         try {
+            MappedByteBuffer snapshot = channel.map
+                    (FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            long billCount = check(snapshot);
+            restoredCount = billDB.replaceAllBills
+                    (new BillIterator(snapshot, billCount),
+                     new DatabaseHelper.BulkInsertListener() {
+               @Override
+               public void onBillsInserted(int insertedCount) {
+                  if (listener != null) {
+                     listener.onProgress(insertedCount);
+                  }
+               }
+            }).getInsertedCount();
+         } finally {
+            channel.close();
+         }
+      } catch (IOException e) {
+         return new BillTransfer.Result(file, restoredCount, 0, 0,
+                                        System.nanoTime() - startNanos, e);
+      } catch (SQLiteException e) {
+         return new BillTransfer.Result(file, 0, 0, 0,
+                                        System.nanoTime() - startNanos,
+                                        new IOException(e.getMessage(), e));
+      }
+      return new BillTransfer.Result(file, restoredCount, 0, 0,
+                                     System.nanoTime() - startNanos, null);
+   }
+
+   // post: checks the header, checksum and contents of the given snapshot,
+   //       throwing an IOException describing the first problem found, and
+   //       returns its number of bills; leaves the snapshot's position at the
+   //       start of its body
+   private static long check(ByteBuffer snapshot) throws IOException {
+      if (snapshot.remaining() < HEADER_SIZE) {
+         throw new IOException("Not a backup (too short)");
+      }
+      for (int i = 0; i < MAGIC.length; i++) {
+         if (snapshot.get(i) != MAGIC[i]) {
+            throw new IOException("Not a backup");
+         }
+      }
+      if (snapshot.get(MAGIC.length) != FORMAT_VERSION) {
+         throw new IOException("Unsupported backup version "
+                               + snapshot.get(MAGIC.length));
+      }
+      long billCount = snapshot.getLong(COUNT_OFFSET);
+      int expectedCRC = snapshot.getInt(CRC_OFFSET);
+      if (billCount < 0 || billCount > Integer.MAX_VALUE) {
+         throw new IOException("Corrupt backup (bill count)");
+      }
+
+      snapshot.position(HEADER_SIZE);
+      CRC32 crc = new CRC32();
+      byte[] chunk = new byte[BUFFER_SIZE];
+      while (snapshot.hasRemaining()) {
+         int length = Math.min(chunk.length, snapshot.remaining());
+         snapshot.get(chunk, 0, length);
+         crc.update(chunk, 0, length);
+      }
+      if ((int) crc.getValue() != expectedCRC) {
+         throw new IOException("Corrupt backup (checksum)");
+      }
+
+      // the checksum can't tell a well-formed body from one written wrongly,
+      // so decode it once before anything is deleted
+      snapshot.position(HEADER_SIZE);
+      try {
+         for (long i = 0; i < billCount * 3; i++) {
+            getVarLong(snapshot);
+         }
+      } catch (BufferUnderflowException e) {
+         throw new IOException("Corrupt backup (truncated)");
+      }
+      if (snapshot.hasRemaining()) {
+         throw new IOException("Corrupt backup (trailing bytes)");
+      }
+      snapshot.position(HEADER_SIZE);
+      return billCount;
+   }
+
+   // post: writes the given buffer's contents to the end of the channel,
+   //       adding the bytes from 'bodyStart' on to the checksum, and clears
+   //       the buffer
+   private static void flush(FileChannel channel, ByteBuffer buffer,
+                             int bodyStart, CRC32 crc, byte[] scratch)
+           throws IOException {
+      buffer.flip();
+      buffer.position(bodyStart);
+      int length = buffer.remaining();
+      buffer.get(scratch, 0, length);
+      crc.update(scratch, 0, length);
+      buffer.position(0);
+      while (buffer.hasRemaining()) {
+         channel.write(buffer);
+      }
+      buffer.clear();
+   }
+
+   // post: returns the given value with its sign moved to the lowest bit, so
+   //       that values near 0 (negative or not) have few significant bits
+   static long zigzag(long value) {
+      return (value << 1) ^ (value >> 63);
+   }
+
+   // post: returns the value that zigzag() turned into the given one
+   static long unzigzag(long value) {
+      return (value >>> 1) ^ -(value & 1);
+   }
+
+   // post: puts the given value in the given buffer, 7 bits per byte, lowest
+   //       bits first, with the high bit of each byte but the last set
+   static void putVarLong(ByteBuffer buffer, long value) {
+      while ((value & ~0x7FL) != 0) {
+         buffer.put((byte) ((value & 0x7F) | 0x80));
+         value >>>= 7;
+      }
+      buffer.put((byte) value);
+   }
+
+   // post: returns the value put by putVarLong() at the buffer's position,
+   //       moving past it; throws a BufferUnderflowException if the buffer
+   //       ends in the middle of it
+   static long getVarLong(ByteBuffer buffer) {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+         byte b = buffer.get();
+         value |= (long) (b & 0x7F) << shift;
+         if (b >= 0) {
+            return value;
+         }
+      }
+      throw new BufferUnderflowException(); // more than 10 bytes
+   }
+
+   /*
+    * Iterator over the bills of a checked snapshot, decoding each one from
+    * the mapped file as it is requested.
+    */
+   private static final class BillIterator implements Iterator<Bill> {
+
+      private final ByteBuffer snapshot;
+      private long remainingCount;
+      private int previousDate;
+
+      BillIterator(ByteBuffer snapshot, long billCount) {
+         this.snapshot = snapshot;
+         this.remainingCount = billCount;
+      }
+
+      @Override
+      public boolean hasNext() {
+         return remainingCount > 0;
+      }
+
+      @Override
+      public Bill next() {
+         if (remainingCount == 0) {
+            throw new NoSuchElementException();
+         }
+         remainingCount--;
+         previousDate += (int) unzigzag(getVarLong(snapshot));
+         long amountPaid = unzigzag(getVarLong(snapshot));
+         long moneyAllowed = unzigzag(getVarLong(snapshot));
+         return new Bill(previousDate, amountPaid, moneyAllowed);
+      }
+
+      @Override
+      public void remove() {
+         throw new UnsupportedOperationException();
+      }
+
+   }
+
+}
@@ -0,0 +1,284 @@
+/*
+ * Class used for holding the loaded part of the bill history in memory.
+ *
+ * The bills are stored column by column in parallel primitive arrays (one
+ * array per field, the same index in each array belonging to the same bill)
+ * rather than as one object per bill, so a large history costs a handful of
+ * arrays instead of several boxed values per bill. Bills are kept in the order
+ * they are shown: newest (highest ID) first.
+ *
+ * The arrays are gap buffers: the free slots left by removed bills form a
+ * single gap that moves to wherever a bill is removed or inserted, so
+ * removing or putting back a bill only moves the bills between it and the
+ * previous removal or insertion (e.g. none when the first bill of a 100k
+ * bill history is swiped away) instead of every bill after it. An index
+ * always counts the bills before it, wherever the gap is.
+ *
+ * A store constructed to be indexed by date also keeps a BillDateIndex of
+ * its bills, filled in as bills are appended (a page at a time) and kept
+ * up-to-date as they are removed and put back, so its bills can be looked up
+ * by date without sorting or checking every bill at lookup time.
+ *
+ * A single BillStore is shared by the ViewHistory activity and its
+ * HistoryRVAdapter.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import java.util.Arrays;
+
+public final class BillStore {
+
+   private static final int INITIAL_CAPACITY = 64;
+
+   private int[] IDs = new int[INITIAL_CAPACITY];
+   private int[] datesPaid = new int[INITIAL_CAPACITY]; // epoch days
+   private long[] amountsPaid = new long[INITIAL_CAPACITY]; // in cents
+   private long[] moneyAllowed = new long[INITIAL_CAPACITY]; // in cents
+   private int size;
+   private int gapStart; // index (and slot) at which the gap starts
+   private int gapLength; // number of free slots in the gap; the slots after
+                          // the last bill are free too but not counted here
+   private final BillDateIndex dateIndex; // null unless indexed by date
+
+   // post: constructs an empty store that isn't indexed by date
+   public BillStore() {
+      this(false);
+   }
+
+   // post: constructs an empty store, indexed by date if 'indexedByDate' is
+   //       true
+   public BillStore(boolean indexedByDate) {
+      dateIndex = indexedByDate ? new BillDateIndex() : null;
+   }
+
+   // post: returns the number of bills in this store
+   public int size() {
+      return size;
+   }
+
+   // post: returns true if this store contains no bills, returns false
+   //       otherwise
+   public boolean isEmpty() {
+      return size == 0;
+   }
+
+   // pre:  0 <= index < size()
+   // post: returns the ID of the bill at the given index
+   public int getID(int index) {
+      return IDs[slotOf(index)];
+   }
+
+   // pre:  0 <= index < size()
+   // post: returns the date paid (epoch day) of the bill at the given index
+   public int getDatePaid(int index) {
+      return datesPaid[slotOf(index)];
+   }
+
+   // pre:  0 <= index < size()
+   // post: returns the amount paid (in cents) of the bill at the given index
+   public long getAmountPaid(int index) {
+      return amountsPaid[slotOf(index)];
+   }
+
+   // pre:  0 <= index < size()
+   // post: returns the money allowed (in cents) of the bill at the given index
+   public long getMoneyAllowed(int index) {
+      return moneyAllowed[slotOf(index)];
+   }
+
+   // pre:  0 <= index < size()
+   // post: appends the display of the bill at the given index (see
+   //       BillDisplays) to the given StringBuilder
+   public void appendDisplay(StringBuilder builder, int index) {
+      int slot = slotOf(index);
+      BillDisplays.appendDisplay(builder, datesPaid[slot], amountsPaid[slot],
+                                 moneyAllowed[slot]);
+   }
+
+   // pre:  'ID' is less than the ID of every bill in this store
+   // post: adds the given bill to the end of this store
+   public void append(int ID, int datePaid, long amountPaid, long allowed) {
+      if (size + gapLength == IDs.length) {
+         if (gapLength == 0) {
+            grow();
+         } else {
+            moveGap(size); // a gap at the end is just free slots
+            gapLength = 0;
+         }
+      }
+      int slot = size + gapLength;
+      IDs[slot] = ID;
+      datesPaid[slot] = datePaid;
+      amountsPaid[slot] = amountPaid;
+      moneyAllowed[slot] = allowed;
+      size++;
+      if (dateIndex != null) {
+         dateIndex.add(datePaid, ID);
+      }
+   }
+
+   // pre:  this store doesn't contain the given ID
+   // post: adds the given bill at the index that keeps the IDs in decreasing
+   //       order, filling the first slot of the gap moved there, and returns
+   //       that index
+   public int insert(int ID, int datePaid, long amountPaid, long allowed) {
+      int index = -(indexOfID(ID) + 1);
+      if (gapLength == 0) {
+         openGap(index);
+      } else {
+         moveGap(index);
+      }
+      IDs[gapStart] = ID;
+      datesPaid[gapStart] = datePaid;
+      amountsPaid[gapStart] = amountPaid;
+      moneyAllowed[gapStart] = allowed;
+      gapStart++;
+      gapLength--;
+      size++;
+      if (dateIndex != null) {
+         dateIndex.add(datePaid, ID);
+      }
+      return index;
+   }
+
+   // pre:  every ID in 'page' is less than the ID of every bill in this store
+   // post: adds every bill of the given store to the end of this store,
+   //       keeping their order
+   public void appendAll(BillStore page) {
+      for (int i = 0; i < page.size; i++) {
+         int slot = page.slotOf(i);
+         append(page.IDs[slot], page.datesPaid[slot], page.amountsPaid[slot],
+                page.moneyAllowed[slot]);
+      }
+   }
+
+   // post: removes every bill from this store
+   public void clear() {
+      size = 0;
+      gapStart = 0;
+      gapLength = 0;
+      if (dateIndex != null) {
+         dateIndex.clear();
+      }
+   }
+
+   // post: returns the index of the bill with the given ID, or, if this store
+   //       doesn't contain it, -(the index it would be inserted at) - 1
+   //       (which is negative); uses a binary search since IDs are kept in
+   //       decreasing order
+   public int indexOfID(int ID) {
+      int low = 0;
+      int high = size - 1;
+      while (low <= high) {
+         int middle = (low + high) >>> 1;
+         int middleID = IDs[slotOf(middle)];
+         if (middleID == ID) {
+            return middle;
+         } else if (middleID > ID) {
+            low = middle + 1;
+         } else {
+            high = middle - 1;
+         }
+      }
+      return -(low + 1);
+   }
+
+   // pre:  0 <= index < size()
+   // post: removes the bill at the given index by moving the gap there and
+   //       adding the bill's slot to it
+   public void remove(int index) {
+      moveGap(index);
+      int slot = gapStart + gapLength;
+      if (dateIndex != null) {
+         dateIndex.remove(datesPaid[slot], IDs[slot]);
+      }
+      gapLength++;
+      size--;
+   }
+
+   // pre:  this store is indexed by date
+   // post: returns the indices of the bills paid on a date matching the
+   //       given pattern, in increasing order; looks them up in the date
+   //       index, so only the matching bills are visited
+   public int[] indicesOfDatesMatching(DatePattern pattern) {
+      int[] matchingIDs = dateIndex.findIDs(pattern);
+      int[] indices = new int[matchingIDs.length];
+      for (int i = 0; i < matchingIDs.length; i++) {
+         indices[i] = indexOfID(matchingIDs[i]);
+      }
+      Arrays.sort(indices);
+      return indices;
+   }
+
+   // pre:  0 <= index < size()
+   // post: returns the slot of the bill at the given index
+   private int slotOf(int index) {
+      return (index < gapStart) ? index : index + gapLength;
+   }
+
+   // pre:  0 <= index <= size()
+   // post: moves the gap so that it starts at the given index, moving the
+   //       bills between its old and new position across it
+   private void moveGap(int index) {
+      if (gapLength == 0) {
+         gapStart = index; // an empty gap can start anywhere
+      } else if (index < gapStart) {
+         moveSlots(index, index + gapLength, gapStart - index);
+      } else if (index > gapStart) {
+         moveSlots(gapStart + gapLength, gapStart, index - gapStart);
+      }
+      gapStart = index;
+   }
+
+   // pre:  0 <= index <= size(), 'gapLength' is 0
+   // post: opens a gap at the given index out of the free slots after the
+   //       last bill (growing the columns first if there are none), moving
+   //       the bills from the given index onwards to the end of the columns
+   private void openGap(int index) {
+      if (size == IDs.length) {
+         grow();
+      }
+      int movedCount = size - index;
+      moveSlots(index, IDs.length - movedCount, movedCount);
+      gapStart = index;
+      gapLength = IDs.length - size;
+   }
+
+   // post: copies the bills of the given number of slots from 'from' onwards
+   //       to 'to' onwards in every column
+   private void moveSlots(int from, int to, int count) {
+      System.arraycopy(IDs, from, IDs, to, count);
+      System.arraycopy(datesPaid, from, datesPaid, to, count);
+      System.arraycopy(amountsPaid, from, amountsPaid, to, count);
+      System.arraycopy(moneyAllowed, from, moneyAllowed, to, count);
+   }
+
+   // post: doubles the capacity of every column, closing the gap
+   private void grow() {
+      int capacity = IDs.length * 2;
+      int[] grownIDs = new int[capacity];
+      int[] grownDatesPaid = new int[capacity];
+      long[] grownAmountsPaid = new long[capacity];
+      long[] grownMoneyAllowed = new long[capacity];
+      int afterGap = gapStart + gapLength;
+      int afterGapCount = size - gapStart;
+      System.arraycopy(IDs, 0, grownIDs, 0, gapStart);
+      System.arraycopy(datesPaid, 0, grownDatesPaid, 0, gapStart);
+      System.arraycopy(amountsPaid, 0, grownAmountsPaid, 0, gapStart);
+      System.arraycopy(moneyAllowed, 0, grownMoneyAllowed, 0, gapStart);
+      System.arraycopy(IDs, afterGap, grownIDs, gapStart, afterGapCount);
+      System.arraycopy(datesPaid, afterGap, grownDatesPaid, gapStart,
+                       afterGapCount);
+      System.arraycopy(amountsPaid, afterGap, grownAmountsPaid, gapStart,
+                       afterGapCount);
+      System.arraycopy(moneyAllowed, afterGap, grownMoneyAllowed, gapStart,
+                       afterGapCount);
+      IDs = grownIDs;
+      datesPaid = grownDatesPaid;
+      amountsPaid = grownAmountsPaid;
+      moneyAllowed = grownMoneyAllowed;
+      gapLength = 0;
+   }
+
+}
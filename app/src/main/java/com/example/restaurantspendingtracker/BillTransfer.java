@@ -0,0 +1,86 @@
+/*
+ * Class holding what the ways of moving many bills in or out of the database
+ * at once (CSV export and import, see BillCsv; binary backup and restore, see
+ * BillSnapshot) have in common: how they report progress and outcome.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import java.io.File;
+import java.io.IOException;
+
+public final class BillTransfer {
+
+   /*
+    * Receives the number of bills moved so far.
+    */
+   public interface ProgressListener {
+      void onProgress(int billCount);
+   }
+
+   /*
+    * The outcome of moving bills to or from a file.
+    */
+   public static final class Result {
+
+      private final File file;
+      private final int billCount;
+      private final int skippedLineCount;
+      private final int firstSkippedLine;
+      private final long elapsedNanos;
+      private final IOException error;
+
+      // post: constructs a result for 'billCount' bills moved to or from
+      //       'file' in 'elapsedNanos' nanoseconds, skipping
+      //       'skippedLineCount' lines, the first being line
+      //       'firstSkippedLine' (0 if none); 'error' is the failure that
+      //       stopped it, or null if it finished
+      Result(File file, int billCount, int skippedLineCount,
+             int firstSkippedLine, long elapsedNanos, IOException error) {
+         this.file = file;
+         this.billCount = billCount;
+         this.skippedLineCount = skippedLineCount;
+         this.firstSkippedLine = firstSkippedLine;
+         this.elapsedNanos = elapsedNanos;
+         this.error = error;
+      }
+
+      // post: returns the file the bills were moved to or from
+      public File getFile() {
+         return file;
+      }
+
+      // post: returns the number of bills moved
+      public int getBillCount() {
+         return billCount;
+      }
+
+      // post: returns the number of lines (CSV only) skipped for not being
+      //       valid bills
+      public int getSkippedLineCount() {
+         return skippedLineCount;
+      }
+
+      // post: returns the (1-based) number of the first line skipped, or 0
+      //       if none were
+      public int getFirstSkippedLine() {
+         return firstSkippedLine;
+      }
+
+      // post: returns the time taken, in nanoseconds
+      public long getElapsedNanos() {
+         return elapsedNanos;
+      }
+
+      // post: returns the failure that stopped the transfer before it
+      //       finished, or null if it finished
+      public IOException getError() {
+         return error;
+      }
+
+   }
+
+   private BillTransfer() {
+   }
+
+}
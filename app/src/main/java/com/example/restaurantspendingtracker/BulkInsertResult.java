@@ -0,0 +1,56 @@
+/*
+ * Class used for reporting how a bulk insert of bills (see
+ * DatabaseHelper.addBills()) went: how many bills were inserted, in how many
+ * transactions, and how fast.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import java.util.Locale;
+
+public final class BulkInsertResult {
+
+   private final int insertedCount;
+   private final int transactionCount;
+   private final long elapsedNanos;
+
+   // post: constructs a result for 'insertedCount' bills inserted in
+   //       'transactionCount' transactions over 'elapsedNanos' nanoseconds
+   public BulkInsertResult(int insertedCount, int transactionCount,
+                           long elapsedNanos) {
+      this.insertedCount = insertedCount;
+      this.transactionCount = transactionCount;
+      this.elapsedNanos = elapsedNanos;
+   }
+
+   // post: returns the number of bills inserted
+   public int getInsertedCount() {
+      return insertedCount;
+   }
+
+   // post: returns the number of transactions committed
+   public int getTransactionCount() {
+      return transactionCount;
+   }
+
+   // post: returns the time taken by the insert, in nanoseconds
+   public long getElapsedNanos() {
+      return elapsedNanos;
+   }
+
+   // post: returns the number of bills inserted per second, or 0 if no time
+   //       was measured
+   public double getBillsPerSecond() {
+      return (elapsedNanos == 0) ? 0 : insertedCount * 1e9 / elapsedNanos;
+   }
+
+   // post: returns a summary like "5000 bills in 5 transactions, 0.42 s
+   //       (11904 bills/s)"
+   @Override
+   public String toString() {
+      return String.format(Locale.US, "%d bills in %d transactions, %.2f s " +
+                           "(%.0f bills/s)", insertedCount, transactionCount,
+                           elapsedNanos / 1e9, getBillsPerSecond());
+   }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Class used for compacting the bill history database in the background:
+ * purging the rows of the deleted bills and handing the pages they used back
+ * to the file system (see DatabaseHelper's class header).
+ *
+ * The work is scheduled after bills are deleted and runs once the device is
+ * idle (on Android 6.0 and up) and its battery isn't low, so deleting stays
+ * as fast as flagging rows and the database file doesn't stay at its peak
+ * size.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import android.content.Context;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class CompactionWorker extends Worker {
+
+   // name of the unique work, so at most one compaction is ever pending
+   private static final String WORK_NAME = "compaction";
+
+   // longest wait for the compaction to finish before it is left to finish
+   // on its own and retried later (WorkManager stops a worker after 10)
+   private static final long TIMEOUT_MINUTES = 9;
+
+   // number of failed compactions after which the work is given up on until
+   // bills are deleted again
+   private static final int MAX_ATTEMPTS = 3;
+
+   public CompactionWorker(@NonNull Context context,
+                           @NonNull WorkerParameters workerParams) {
+      super(context, workerParams);
+   }
+
+   // post: schedules a compaction of the database unless one is already
+   //       pending
+   public static void schedule(Context context) {
+      Constraints.Builder constraints = new Constraints.Builder()
+              .setRequiresBatteryNotLow(true);
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+         constraints.setRequiresDeviceIdle(true);
+      }
+      OneTimeWorkRequest compaction =
+              new OneTimeWorkRequest.Builder(CompactionWorker.class)
+                      .setConstraints(constraints.build())
+                      .build();
+      WorkManager.getInstance().enqueueUniqueWork
+              (WORK_NAME, ExistingWorkPolicy.KEEP, compaction);
+   }
+
+   // post: compacts the database through the BillRepository, so that the
+   //       compaction's writes are ordered with the app's, and returns once
+   //       it is done; asks to be retried if it failed or didn't finish
+   //       within TIMEOUT_MINUTES, or fails once that has happened
+   //       MAX_ATTEMPTS times
+   @NonNull
+   @Override
+   public Result doWork() {
+      final CountDownLatch compacted = new CountDownLatch(1);
+      final AtomicBoolean failed = new AtomicBoolean();
+      BillRepository.getInstance(getApplicationContext()).compact
+              (new BillRepository.Callback<Integer>() {
+         @Override
+         public void onResult(Integer purgedCount) {
+            compacted.countDown();
+         }
+
+         @Override
+         public void onError(RuntimeException failure) {
+            failed.set(true);
+            compacted.countDown();
+         }
+      });
+      try {
+         if (compacted.await(TIMEOUT_MINUTES, TimeUnit.MINUTES)
+             && !failed.get()) {
+            return Result.success();
+         }
+      } catch (InterruptedException e) {
+         return Result.retry();
+      }
+      return (getRunAttemptCount() + 1 < MAX_ATTEMPTS)
+             ? Result.retry() : Result.failure();
+   }
+
+}
@@ -0,0 +1,173 @@
+/*
+ * Class used for summing the bills paid between any two dates in
+ * logarithmic time.
+ *
+ * The number of bills, amount paid and money allowed of each day are kept in
+ * Fenwick trees (binary indexed trees) over a contiguous span of epoch days,
+ * so both adding or removing a bill and summing a range of days take
+ * O(log d) time, d being the number of days spanned. The span grows (and the
+ * trees are rebuilt in linear time) when a bill falls outside of it.
+ *
+ * The methods are synchronized since BillRepository reads the tree from its
+ * reader threads and updates it from its writer thread.
+ */
+
+package com.example.restaurantspendingtracker;
+
+public final class DailyTotalsTree {
+
+   private static final int INITIAL_SPAN = 366;
+
+   private int firstDay; // epoch day of index 0
+   private int span; // number of days covered
+
+   // totals of each day, by index
+   private int[] dayCounts;
+   private long[] dayAmountsPaid;
+   private long[] dayMoneyAllowed;
+
+   // Fenwick trees of the daily totals (1-based: index i holds the totals of
+   // the days (i - (i & -i), i])
+   private int[] countTree;
+   private long[] amountPaidTree;
+   private long[] moneyAllowedTree;
+
+   // post: constructs an empty tree covering the days from 'firstDay' to
+   //       'lastDay' (inclusive); other days are covered as bills are added
+   //       on them
+   public DailyTotalsTree(int firstDay, int lastDay) {
+      this.firstDay = firstDay;
+      this.span = Math.max(INITIAL_SPAN, lastDay - firstDay + 1);
+      dayCounts = new int[span];
+      dayAmountsPaid = new long[span];
+      dayMoneyAllowed = new long[span];
+      countTree = new int[span + 1];
+      amountPaidTree = new long[span + 1];
+      moneyAllowedTree = new long[span + 1];
+   }
+
+   // post: adds a bill paid on the given epoch day with the given amounts
+   //       (in cents) to the totals
+   public synchronized void add(int datePaid, long amountPaid,
+                                long moneyAllowed) {
+      update(datePaid, 1, amountPaid, moneyAllowed);
+   }
+
+   // pre:  a bill with the given date and amounts was added
+   // post: removes a bill paid on the given epoch day with the given amounts
+   //       (in cents) from the totals
+   public synchronized void remove(int datePaid, long amountPaid,
+                                   long moneyAllowed) {
+      update(datePaid, -1, -amountPaid, -moneyAllowed);
+   }
+
+   // post: adds the totals of 'billCount' bills paid on the given epoch day,
+   //       with the given summed amounts (in cents), in O(1) time; the totals
+   //       can't be read until rebuild() is called
+   public synchronized void addDayWithoutUpdating(int datePaid, int billCount,
+                                                  long amountPaid,
+                                                  long moneyAllowed) {
+      int index = indexOf(datePaid);
+      dayCounts[index] += billCount;
+      dayAmountsPaid[index] += amountPaid;
+      dayMoneyAllowed[index] += moneyAllowed;
+   }
+
+   // post: rebuilds the trees from the daily totals in O(d) time
+   public synchronized void rebuild() {
+      for (int i = 1; i <= span; i++) {
+         countTree[i] = dayCounts[i - 1];
+         amountPaidTree[i] = dayAmountsPaid[i - 1];
+         moneyAllowedTree[i] = dayMoneyAllowed[i - 1];
+      }
+      for (int i = 1; i <= span; i++) {
+         int parent = i + (i & -i);
+         if (parent <= span) {
+            countTree[parent] += countTree[i];
+            amountPaidTree[parent] += amountPaidTree[i];
+            moneyAllowedTree[parent] += moneyAllowedTree[i];
+         }
+      }
+   }
+
+   // post: returns the totals of the bills paid from 'firstDay' to 'lastDay'
+   //       (inclusive epoch days), all 0 if 'lastDay' < 'firstDay'
+   public synchronized DateRangeTotals getTotals(int firstDay, int lastDay) {
+      int first = Math.max(firstDay - this.firstDay, 0);
+      int last = Math.min(lastDay - this.firstDay, span - 1);
+      if (lastDay < firstDay || last < first) {
+         return new DateRangeTotals(firstDay, lastDay, 0, 0, 0);
+      }
+      int billCount = 0;
+      long amountPaid = 0;
+      long moneyAllowed = 0;
+      for (int i = last + 1; i > 0; i -= i & -i) {
+         billCount += countTree[i];
+         amountPaid += amountPaidTree[i];
+         moneyAllowed += moneyAllowedTree[i];
+      }
+      for (int i = first; i > 0; i -= i & -i) {
+         billCount -= countTree[i];
+         amountPaid -= amountPaidTree[i];
+         moneyAllowed -= moneyAllowedTree[i];
+      }
+      return new DateRangeTotals(firstDay, lastDay, billCount, amountPaid,
+                                 moneyAllowed);
+   }
+
+   // post: adds the given changes to the totals of the given epoch day
+   private void update(int datePaid, int billCount, long amountPaid,
+                       long moneyAllowed) {
+      int index = indexOf(datePaid);
+      dayCounts[index] += billCount;
+      dayAmountsPaid[index] += amountPaid;
+      dayMoneyAllowed[index] += moneyAllowed;
+      for (int i = index + 1; i <= span; i += i & -i) {
+         countTree[i] += billCount;
+         amountPaidTree[i] += amountPaid;
+         moneyAllowedTree[i] += moneyAllowed;
+      }
+   }
+
+   // post: returns the index of the given epoch day, first growing the span
+   //       to cover it (with room to spare) if needed
+   private int indexOf(int epochDay) {
+      if (epochDay < firstDay || epochDay - firstDay >= span) {
+         int lastDay = firstDay + span - 1;
+         int newFirstDay = Math.min(firstDay, epochDay);
+         int newLastDay = Math.max(lastDay, epochDay);
+         int slack = Math.max(newLastDay - newFirstDay + 1, INITIAL_SPAN);
+         if (epochDay < firstDay) {
+            newFirstDay -= slack;
+         } else {
+            newLastDay += slack;
+         }
+         grow(newFirstDay, newLastDay);
+      }
+      return epochDay - firstDay;
+   }
+
+   // pre:  the given span contains the current one
+   // post: moves the daily totals to arrays covering the days from
+   //       'newFirstDay' to 'newLastDay' and rebuilds the trees
+   private void grow(int newFirstDay, int newLastDay) {
+      int newSpan = newLastDay - newFirstDay + 1;
+      int offset = firstDay - newFirstDay;
+      int[] newDayCounts = new int[newSpan];
+      long[] newDayAmountsPaid = new long[newSpan];
+      long[] newDayMoneyAllowed = new long[newSpan];
+      System.arraycopy(dayCounts, 0, newDayCounts, offset, span);
+      System.arraycopy(dayAmountsPaid, 0, newDayAmountsPaid, offset, span);
+      System.arraycopy(dayMoneyAllowed, 0, newDayMoneyAllowed, offset, span);
+      firstDay = newFirstDay;
+      span = newSpan;
+      dayCounts = newDayCounts;
+      dayAmountsPaid = newDayAmountsPaid;
+      dayMoneyAllowed = newDayMoneyAllowed;
+      countTree = new int[span + 1];
+      amountPaidTree = new long[span + 1];
+      moneyAllowedTree = new long[span + 1];
+      rebuild();
+   }
+
+}
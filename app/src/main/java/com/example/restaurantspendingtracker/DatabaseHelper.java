@@ -1,6 +1,16 @@
 /*
  * Class used for managing the database storing the bill data of bills present
  * in the bill history.
+ *
+ * There is one DatabaseHelper (and so one connection pool) per process. The
+ * database uses write-ahead logging, so reads don't wait for the writer, and
+ * the statements run most often are compiled once and reused.
+ *
+ * Deleting a bill only flags its row as deleted (a soft delete), which
+ * leaves the table's pages and the date index alone; every query skips the
+ * flagged rows. They are purged later, in chunks, by
+ * purgeDeletedBills(), and the pages freed are handed back to the file
+ * system by reclaimFreePages() (see CompactionWorker).
  */
 
 package com.example.restaurantspendingtracker;
@@ -8,80 +18,911 @@ package com.example.restaurantspendingtracker;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 
-// TODO delete the "Bill" column from the database and add columns for the
-//      date, amount paid, and money allowed instead so it is less constraining
-//      for later
+import java.util.Iterator;
 
 public class DatabaseHelper extends SQLiteOpenHelper {
 
    public static final String DATABASE_NAME = "BillHistory.db";
    public static final String TABLE_NAME = "BillData";
    public static final String COL1 = "ID";
-   public static final String COL2 = "DisplayedBill";
-   // leftoverMoney = moneyAllowed - moneyPaid
-   public static final String COL3 = "LeftoverMoney";
+   // epoch day (days since 01/01/1970) the bill was paid on
+   public static final String COL4 = "DatePaid";
+   // amounts of money are stored as whole cents
+   public static final String COL5 = "AmountPaid";
+   public static final String COL6 = "MoneyAllowed";
+   // 1 once the bill is deleted, until its row is purged; 0 otherwise
+   public static final String COL7 = "Deleted";
+
+   // column of version 1 to 6 databases holding each bill's display as it
+   // was shown in the history; only read while upgrading, no longer stored
+   private static final String LEGACY_COL2 = "DisplayedBill";
+   // column of version 1 and 2 databases holding moneyAllowed - moneyPaid as
+   // a double; only read while upgrading, no longer written to
+   private static final String LEGACY_COL3 = "LeftoverMoney";
+
+   // single-row table holding the sum of 'COL6' - 'COL5' over every bill;
+   // kept up-to-date by triggers on TABLE_NAME so the total never requires a
+   // scan
+   public static final String SUMMARY_TABLE_NAME = "BillSummary";
+   public static final String SUMMARY_COL1 = "ID";
+   public static final String SUMMARY_COL2 = "TotalLeftoverCents";
+
+   // full-text search index over the display of every bill (see
+   // BillDisplays), rendered from the bill's columns in SQL; the docid of
+   // each row is the ID of its bill, and triggers on TABLE_NAME keep it in
+   // sync
+   public static final String SEARCH_TABLE_NAME = "BillSearch";
+   public static final String SEARCH_COL1 = "DisplayedBill";
+
+   // table holding the number of bills, amount paid and money allowed of
+   // every day, month and year with bills, keyed by SpendingRollup period
+   // keys; kept up-to-date by triggers on TABLE_NAME so a period's totals
+   // are a single-row lookup
+   public static final String ROLLUP_TABLE_NAME = "BillRollup";
+   public static final String ROLLUP_COL1 = "Period";
+   public static final String ROLLUP_COL2 = "BillCount";
+   public static final String ROLLUP_COL3 = "AmountPaid";
+   public static final String ROLLUP_COL4 = "MoneyAllowed";
+
+   private static final String DATE_INDEX_NAME = TABLE_NAME + "_" + COL4;
+
+   private static final int DATABASE_VERSION = 7;
+
+   // number of rows converted per query while upgrading to typed columns, so
+   // the whole table is never held in memory at once
+   private static final int MIGRATION_BATCH_SIZE = 500;
+
+   // most bills inserted per transaction by addBills(); large enough that
+   // commits are rare, small enough that a transaction never holds the
+   // writer for long
+   public static final int BULK_INSERT_CHUNK_SIZE = 1000;
+
+   // most deleted bills purged per transaction by purgeDeletedBills()
+   public static final int PURGE_CHUNK_SIZE = 500;
+
+   // value of "PRAGMA auto_vacuum" when free pages are only handed back to
+   // the file system on "PRAGMA incremental_vacuum"
+   private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
+   private static DatabaseHelper instance;
+
+   // compiled once and reused; each is only used while holding its own lock
+   private SQLiteStatement insertStatement;
+   private SQLiteStatement deleteStatement;
+   private SQLiteStatement deleteDateRangeStatement;
+   private SQLiteStatement totalLeftoverStatement;
+
+   /*
+    * Receives the progress of addBills(), once per transaction.
+    */
+   public interface BulkInsertListener {
+      void onBillsInserted(int insertedCount);
+   }
 
    // post: constructs a database with the current DATABASE_NAME in the given
-   //       context
-   public DatabaseHelper(Context context) {
-      super(context, DATABASE_NAME, null, 1);
+   //       context, using write-ahead logging
+   DatabaseHelper(Context context) {
+      super(context, DATABASE_NAME, null, DATABASE_VERSION);
+      if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+         setWriteAheadLoggingEnabled(true);
+      }
+   }
+
+   // post: returns the DatabaseHelper of this process, creating it (without
+   //       opening the database yet) on the first call
+   public static synchronized DatabaseHelper getInstance(Context context) {
+      if (instance == null) {
+         instance = new DatabaseHelper(context.getApplicationContext());
+      }
+      return instance;
+   }
+
+   // post: turns on write-ahead logging on versions of Android without
+   //       setWriteAheadLoggingEnabled()
+   @Override
+   public void onOpen(SQLiteDatabase db) {
+      super.onOpen(db);
+      if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN
+              && !db.isReadOnly()) {
+         db.enableWriteAheadLogging();
+      }
+   }
+
+   // post: closes the compiled statements and then the database
+   @Override
+   public synchronized void close() {
+      closeStatement(insertStatement);
+      closeStatement(deleteStatement);
+      closeStatement(deleteDateRangeStatement);
+      closeStatement(totalLeftoverStatement);
+      insertStatement = null;
+      deleteStatement = null;
+      deleteDateRangeStatement = null;
+      totalLeftoverStatement = null;
+      super.close();
    }
 
    // post: creates a new table with the current TABLE_NAME and columns; uses
    //       auto-incrementing IDs as the primary identifier for each row of
-   //       data
+   //       data; also creates the date index, the summary table, the search
+   //       index, the rollup table and the triggers maintaining them
    @Override
    public void onCreate(SQLiteDatabase db) {
-      String createTable = "CREATE TABLE " + TABLE_NAME + " (" + COL1 +
-                           " INTEGER PRIMARY KEY " + "AUTOINCREMENT, " + COL2 +
-                           " String, " + COL3 + " DOUBLE)";
-      db.execSQL(createTable);
+      createBillTable(db, TABLE_NAME);
+      createDateIndex(db);
+      createSummary(db);
+      createSearchIndex(db);
+      createRollups(db);
+      createInsertTriggers(db);
+      createRemovalTriggers(db);
    }
 
-   // post: deletes the existing table from the given database and creates a
-   //       new one
+   // post: brings the given database from 'oldVersion' up to 'newVersion'
+   //       one version at a time, keeping all existing bill data
+   @Override
    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-      db.execSQL("DROP TABLE IF EXISTS " + TABLE_NAME);
-      onCreate(db);
+      if (oldVersion < 6) {
+         // added before the other steps since the tables they fill skip the
+         // deleted bills
+         db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COL7 +
+                    " INTEGER NOT NULL DEFAULT 0");
+      }
+      if (oldVersion < 3) {
+         db.execSQL("DROP TRIGGER IF EXISTS " + TABLE_NAME + "_AfterInsert");
+         db.execSQL("DROP TRIGGER IF EXISTS " + TABLE_NAME + "_AfterDelete");
+         db.execSQL("DROP TABLE IF EXISTS " + SUMMARY_TABLE_NAME);
+         addTypedColumns(db);
+         createDateIndex(db);
+         createSummary(db);
+      }
+      if (oldVersion < 4) {
+         createSearchIndex(db);
+      }
+      if (oldVersion < 5) {
+         createRollups(db);
+      }
+      if (oldVersion < 7) {
+         dropDisplayColumn(db);
+      }
    }
 
-   // post: adds the given billDisplay and leftoverMoney to the database
-   public void addBillData(String billDisplay, double leftoverMoney) {
-      ContentValues contentValues = new ContentValues();
-      contentValues.put(COL2, billDisplay);
-      contentValues.put(COL3, leftoverMoney);
-      this.getWritableDatabase().insert(TABLE_NAME, null, contentValues);
+   // pre:  'datePaid' is an epoch day
+   // post: adds a bill paid on the given date with the given amounts (in
+   //       cents) to the database
+   public void addBillData(int datePaid, long amountPaid, long moneyAllowed) {
+      long start = Metrics.start();
+      SQLiteStatement insert = getInsertStatement();
+      synchronized (insert) {
+         insert.bindLong(1, datePaid);
+         insert.bindLong(2, amountPaid);
+         insert.bindLong(3, moneyAllowed);
+         insert.executeInsert();
+      }
+      Metrics.stop(Metrics.DB_INSERT, start, 1);
    }
 
-   // post: returns a cursor containing the IDs of all the bills in the
-   //       database
-   public Cursor getAllIDs() {
-      return this.getWritableDatabase().rawQuery
-              ("SELECT " + COL1 + " FROM " + TABLE_NAME, null);
+   // post: adds every remaining bill of the given iterator to the database,
+   //       in order, and returns how many were inserted and how fast; the
+   //       bills are inserted with one compiled statement in transactions of
+   //       BULK_INSERT_CHUNK_SIZE bills, after each of which 'listener' (if
+   //       not null) is told the number of bills inserted so far; if a bill
+   //       can't be inserted, the bills of its transaction aren't either
+   public BulkInsertResult addBills(Iterator<Bill> bills,
+                                    BulkInsertListener listener) {
+      long start = Metrics.start();
+      long startNanos = System.nanoTime();
+      SQLiteDatabase db = this.getWritableDatabase();
+      SQLiteStatement insert = getInsertStatement();
+      int insertedCount = 0;
+      int transactionCount = 0;
+      while (bills.hasNext()) {
+         db.beginTransactionNonExclusive();
+         try {
+            synchronized (insert) {
+               for (int i = 0; i < BULK_INSERT_CHUNK_SIZE && bills.hasNext();
+                    i++) {
+                  Bill bill = bills.next();
+                  insert.bindLong(1, bill.getDatePaid());
+                  insert.bindLong(2, bill.getAmountPaid());
+                  insert.bindLong(3, bill.getMoneyAllowed());
+                  insert.executeInsert();
+                  insertedCount++;
+               }
+            }
+            db.setTransactionSuccessful();
+         } finally {
+            db.endTransaction();
+         }
+         transactionCount++;
+         if (listener != null) {
+            listener.onBillsInserted(insertedCount);
+         }
+      }
+      Metrics.stop(Metrics.DB_INSERT, start, insertedCount);
+      return new BulkInsertResult(insertedCount, transactionCount,
+                                  System.nanoTime() - startNanos);
    }
 
-   // post: returns a cursor containing all the display bills in the database
-   public Cursor getAllDisplayBills() {
-      return this.getWritableDatabase().rawQuery
-              ("SELECT " + COL2 + " FROM "+ TABLE_NAME, null);
+   // post: returns a cursor containing the ID, date paid, amount paid and
+   //       money allowed (in that order) of at most 'limit' bills
+   //       whose IDs are less than 'beforeID', newest (highest ID) first;
+   //       passing the ID of the last bill of one page as 'beforeID' returns
+   //       the next page
+   public Cursor getBillsBefore(int beforeID, int limit) {
+      return this.getReadableDatabase().rawQuery
+              ("SELECT " + COL1 + ", " + COL4 + ", " + COL5 + ", " + COL6 +
+               " FROM " + TABLE_NAME + " WHERE " + COL1 +
+               " < ? AND " + COL7 + " = 0 ORDER BY " + COL1 + " DESC LIMIT " +
+               limit,
+               new String[] {Integer.toString(beforeID)});
    }
 
-   // post: returns a cursor containing the leftover money of all bills in the
-   //       database
-   public Cursor getAllLeftoverMoney() {
-      return this.getWritableDatabase().rawQuery
-              ("SELECT " + COL3 + " FROM " + TABLE_NAME, null);
+   // post: returns a cursor containing the date paid, amount paid and money
+   //       allowed (in that order) of every bill, oldest (lowest ID) first;
+   //       the rows are read one window at a time as the cursor moves
+   public Cursor getAllBillsOldestFirst() {
+      return this.getReadableDatabase().rawQuery
+              ("SELECT " + COL4 + ", " + COL5 + ", " + COL6 + " FROM " +
+               TABLE_NAME + " WHERE " + COL7 + " = 0 ORDER BY " + COL1, null);
+   }
+
+   // post: returns the sum of the leftover money (in cents) of all bills in
+   //       the database; reads the single summary row instead of every bill
+   public long getTotalLeftoverCents() {
+      long start = Metrics.start();
+      SQLiteStatement total = getTotalLeftoverStatement();
+      long totalLeftoverCents;
+      synchronized (total) {
+         totalLeftoverCents = total.simpleQueryForLong();
+      }
+      Metrics.stop(Metrics.DB_TOTAL, start, 1);
+      return totalLeftoverCents;
+   }
+
+   // post: returns the totals of the bills paid in the period with the given
+   //       key (see SpendingRollup), all 0 if there aren't any; reads the
+   //       period's single row of the rollup table instead of its bills
+   public SpendingRollup getRollup(int period) {
+      Cursor rollupCursor = this.getReadableDatabase().rawQuery
+              ("SELECT " + ROLLUP_COL2 + ", " + ROLLUP_COL3 + ", " +
+               ROLLUP_COL4 + " FROM " + ROLLUP_TABLE_NAME + " WHERE " +
+               ROLLUP_COL1 + " = ?", new String[] {Integer.toString(period)});
+      try {
+         if (!rollupCursor.moveToFirst()) {
+            return new SpendingRollup(period, 0, 0, 0);
+         }
+         return new SpendingRollup(period, rollupCursor.getInt(0),
+                                   rollupCursor.getLong(1),
+                                   rollupCursor.getLong(2));
+      } finally {
+         rollupCursor.close();
+      }
+   }
+
+   // post: returns a DailyTotalsTree of every bill in the database, built
+   //       from the day rows of the rollup table (one row per day with bills,
+   //       rather than one per bill)
+   public DailyTotalsTree buildDailyTotals() {
+      Cursor dayCursor = this.getReadableDatabase().rawQuery
+              ("SELECT " + ROLLUP_COL1 + ", " + ROLLUP_COL2 + ", " +
+               ROLLUP_COL3 + ", " + ROLLUP_COL4 + " FROM " +
+               ROLLUP_TABLE_NAME + " WHERE " + ROLLUP_COL1 + " % 100 != 0" +
+               " ORDER BY " + ROLLUP_COL1, null);
+      try {
+         if (!dayCursor.moveToLast()) {
+            int today = (int) (System.currentTimeMillis() / 86400000L);
+            return new DailyTotalsTree(today, today);
+         }
+         int lastDay = epochDayOfDayKey(dayCursor.getInt(0));
+         dayCursor.moveToFirst();
+         DailyTotalsTree dailyTotals = new DailyTotalsTree
+                 (epochDayOfDayKey(dayCursor.getInt(0)), lastDay);
+         do {
+            dailyTotals.addDayWithoutUpdating
+                    (epochDayOfDayKey(dayCursor.getInt(0)),
+                     dayCursor.getInt(1), dayCursor.getLong(2),
+                     dayCursor.getLong(3));
+         } while (dayCursor.moveToNext());
+         dailyTotals.rebuild();
+         return dailyTotals;
+      } finally {
+         dayCursor.close();
+      }
+   }
+
+   // post: returns the bill with the given ID, or null if the database
+   //       doesn't contain it (or it is deleted)
+   public Bill getBill(int ID) {
+      Cursor billCursor = this.getReadableDatabase().rawQuery
+              ("SELECT " + COL4 + ", " + COL5 + ", " + COL6 + " FROM " +
+               TABLE_NAME + " WHERE " + COL1 + " = ? AND " + COL7 + " = 0",
+               new String[] {Integer.toString(ID)});
+      try {
+         if (!billCursor.moveToFirst()) {
+            return null;
+         }
+         return new Bill(billCursor.getInt(0), billCursor.getLong(1),
+                         billCursor.getLong(2));
+      } finally {
+         billCursor.close();
+      }
+   }
+
+   // post: recomputes the rollup table (and the leftover total of the
+   //       summary table) from the bills in a single transaction, reading
+   //       each bill once, and returns the number of periods with bills
+   public int rebuildRollups() {
+      SQLiteDatabase db = this.getWritableDatabase();
+      db.beginTransaction();
+      try {
+         db.delete(ROLLUP_TABLE_NAME, null, null);
+         fillRollups(db);
+         db.execSQL("UPDATE " + SUMMARY_TABLE_NAME + " SET " + SUMMARY_COL2 +
+                    " = (SELECT IFNULL(SUM(" + ROLLUP_COL4 + " - " +
+                    ROLLUP_COL3 + "), 0) FROM " + ROLLUP_TABLE_NAME +
+                    " WHERE " + ROLLUP_COL1 + " % 10000 = 0)");
+         int periodCount = (int) DatabaseUtils.queryNumEntries
+                 (db, ROLLUP_TABLE_NAME);
+         db.setTransactionSuccessful();
+         return periodCount;
+      } finally {
+         db.endTransaction();
+      }
+   }
+
+   // pre:  !query.matchesEverything()
+   // post: returns the IDs of the bills matching the given query, newest
+   //       (highest ID) first; looks them up in the search index instead of
+   //       reading every bill
+   public int[] findMatchingIDs(BillSearchQuery query) {
+      long start = Metrics.start();
+      Cursor matchCursor = this.getReadableDatabase().rawQuery
+              ("SELECT docid FROM " + SEARCH_TABLE_NAME + " WHERE " +
+               SEARCH_TABLE_NAME + " MATCH ? ORDER BY docid DESC",
+               new String[] {query.toMatchExpression()});
+      try {
+         int[] matchingIDs = new int[matchCursor.getCount()];
+         for (int i = 0; matchCursor.moveToNext(); i++) {
+            matchingIDs[i] = matchCursor.getInt(0);
+         }
+         Metrics.stop(Metrics.DB_SEARCH, start, matchingIDs.length);
+         return matchingIDs;
+      } finally {
+         matchCursor.close();
+      }
    }
 
    // pre:  the database contains the given ID
    // post: deletes the bill data of the bill belonging to the given ID from
-   //       the database
+   //       the database (see class header)
    public void removeBill(int passedID) {
-      this.getWritableDatabase().execSQL
-              ("DELETE FROM " + TABLE_NAME + " WHERE " + COL1 + "= " + passedID);
+      long start = Metrics.start();
+      SQLiteStatement delete = getDeleteStatement();
+      int deletedCount;
+      synchronized (delete) {
+         delete.bindLong(1, passedID);
+         deletedCount = delete.executeUpdateDelete();
+      }
+      Metrics.stop(Metrics.DB_DELETE, start, deletedCount);
+   }
+
+   // post: deletes the bill data of the given bills from the database (see
+   //       class header) in a single transaction and returns the ones that
+   //       were deleted, in the same order
+   public BillStore removeBills(BillStore bills) {
+      long start = Metrics.start();
+      SQLiteDatabase db = this.getWritableDatabase();
+      BillStore deletedBills = new BillStore();
+      db.beginTransaction();
+      try {
+         SQLiteStatement delete = getDeleteStatement();
+         synchronized (delete) {
+            for (int i = 0; i < bills.size(); i++) {
+               delete.bindLong(1, bills.getID(i));
+               if (delete.executeUpdateDelete() > 0) {
+                  deletedBills.append(bills.getID(i), bills.getDatePaid(i),
+                                      bills.getAmountPaid(i),
+                                      bills.getMoneyAllowed(i));
+               }
+            }
+         }
+         db.setTransactionSuccessful();
+      } finally {
+         db.endTransaction();
+      }
+      Metrics.stop(Metrics.DB_DELETE, start, deletedBills.size());
+      return deletedBills;
+   }
+
+   // post: deletes the bill data of every bill from the database (see class
+   //       header) and returns the number of bills deleted
+   public int removeAllBills() {
+      ContentValues deleted = new ContentValues();
+      deleted.put(COL7, 1);
+      return this.getWritableDatabase().update(TABLE_NAME, deleted,
+                                               COL7 + " = 0", null);
+   }
+
+   // post: replaces every bill in the database with the remaining bills of
+   //       the given iterator, inserted as by addBills() (whose transactions
+   //       it nests) but committed in a single outer transaction, and
+   //       returns how many were inserted and how fast; if a bill can't be
+   //       inserted, the database is left as it was
+   public BulkInsertResult replaceAllBills(Iterator<Bill> bills,
+                                           BulkInsertListener listener) {
+      SQLiteDatabase db = this.getWritableDatabase();
+      db.beginTransactionNonExclusive();
+      try {
+         removeAllBills();
+         BulkInsertResult result = addBills(bills, listener);
+         db.setTransactionSuccessful();
+         return result;
+      } finally {
+         db.endTransaction();
+      }
+   }
+
+   // post: purges the rows of at most 'limit' deleted bills whose IDs are
+   //       greater than 'afterID' from the database in a single transaction
+   //       and returns their IDs in increasing order; passing the last ID
+   //       returned as 'afterID' purges the next chunk
+   public int[] purgeDeletedBills(int afterID, int limit) {
+      SQLiteDatabase db = this.getWritableDatabase();
+      int[] purgedIDs;
+      db.beginTransaction();
+      try {
+         Cursor deletedCursor = db.rawQuery
+                 ("SELECT " + COL1 + " FROM " + TABLE_NAME + " WHERE " +
+                  COL1 + " > ? AND " + COL7 + " != 0 ORDER BY " + COL1 +
+                  " LIMIT " + limit, new String[] {Integer.toString(afterID)});
+         try {
+            purgedIDs = new int[deletedCursor.getCount()];
+            for (int i = 0; deletedCursor.moveToNext(); i++) {
+               purgedIDs[i] = deletedCursor.getInt(0);
+            }
+         } finally {
+            deletedCursor.close();
+         }
+         if (purgedIDs.length > 0) {
+            db.delete(TABLE_NAME, COL1 + " BETWEEN ? AND ? AND " + COL7 +
+                      " != 0", new String[] {Integer.toString(purgedIDs[0]),
+                      Integer.toString(purgedIDs[purgedIDs.length - 1])});
+         }
+         db.setTransactionSuccessful();
+      } finally {
+         db.endTransaction();
+      }
+      return purgedIDs;
+   }
+
+   // pre:  no transaction is open on the database
+   // post: hands the database's free pages back to the file system and
+   //       returns how many there were; the first call switches the database
+   //       to incremental vacuuming, which takes a full VACUUM, and later
+   //       calls only run "PRAGMA incremental_vacuum"
+   public long reclaimFreePages() {
+      SQLiteDatabase db = this.getWritableDatabase();
+      long freePageCount = DatabaseUtils.longForQuery
+              (db, "PRAGMA freelist_count", null);
+      if (DatabaseUtils.longForQuery(db, "PRAGMA auto_vacuum", null)
+              != AUTO_VACUUM_INCREMENTAL) {
+         db.execSQL("PRAGMA auto_vacuum = " + AUTO_VACUUM_INCREMENTAL);
+         db.execSQL("VACUUM");
+      } else if (freePageCount > 0) {
+         Cursor vacuumCursor = db.rawQuery("PRAGMA incremental_vacuum",
+                                           null);
+         try {
+            while (vacuumCursor.moveToNext()) {
+               // each step frees one page
+            }
+         } finally {
+            vacuumCursor.close();
+         }
+      }
+      return freePageCount;
+   }
+
+   // post: deletes the bill data of every bill whose date paid matches the
+   //       given pattern from the database and returns the number of bills
+   //       deleted; the deletes run in a single transaction, each one over a
+   //       range of the date index
+   public int removeBillsMatching(DatePattern pattern) {
+      long start = Metrics.start();
+      SQLiteDatabase db = this.getWritableDatabase();
+      int deletedCount = 0;
+      db.beginTransaction();
+      try {
+         Cursor dateBoundsCursor = db.rawQuery
+                 ("SELECT MIN(" + COL4 + "), MAX(" + COL4 + ") FROM " +
+                  TABLE_NAME + " WHERE " + COL7 + " = 0", null);
+         int[] ranges;
+         try {
+            if (!dateBoundsCursor.moveToFirst()
+                    || dateBoundsCursor.isNull(0)) {
+               db.setTransactionSuccessful();
+               Metrics.stop(Metrics.DB_DELETE, start, 0);
+               return 0;
+            }
+            ranges = pattern.toEpochDayRanges(dateBoundsCursor.getInt(0),
+                                              dateBoundsCursor.getInt(1));
+         } finally {
+            dateBoundsCursor.close();
+         }
+
+         SQLiteStatement deleteDateRange = getDeleteDateRangeStatement();
+         synchronized (deleteDateRange) {
+            for (int i = 0; i < ranges.length; i += 2) {
+               deleteDateRange.bindLong(1, ranges[i]);
+               deleteDateRange.bindLong(2, ranges[i + 1]);
+               deletedCount += deleteDateRange.executeUpdateDelete();
+            }
+         }
+         db.setTransactionSuccessful();
+      } finally {
+         db.endTransaction();
+      }
+      Metrics.stop(Metrics.DB_DELETE, start, deletedCount);
+      return deletedCount;
+   }
+
+   // post: returns the compiled statement inserting a bill's date paid,
+   //       amount paid and money allowed (bound in that order)
+   private synchronized SQLiteStatement getInsertStatement() {
+      if (insertStatement == null) {
+         insertStatement = this.getWritableDatabase().compileStatement
+                 ("INSERT INTO " + TABLE_NAME + " (" + COL4 + ", " + COL5 +
+                  ", " + COL6 + ") VALUES (?, ?, ?)");
+      }
+      return insertStatement;
+   }
+
+   // post: returns the compiled statement flagging the bill of a bound ID
+   //       as deleted
+   private synchronized SQLiteStatement getDeleteStatement() {
+      if (deleteStatement == null) {
+         deleteStatement = this.getWritableDatabase().compileStatement
+                 ("UPDATE " + TABLE_NAME + " SET " + COL7 + " = 1 WHERE " +
+                  COL1 + " = ? AND " + COL7 + " = 0");
+      }
+      return deleteStatement;
+   }
+
+   // post: returns the compiled statement flagging the bills paid between two
+   //       bound epoch days (inclusive) as deleted
+   private synchronized SQLiteStatement getDeleteDateRangeStatement() {
+      if (deleteDateRangeStatement == null) {
+         deleteDateRangeStatement = this.getWritableDatabase().compileStatement
+                 ("UPDATE " + TABLE_NAME + " SET " + COL7 + " = 1 WHERE " +
+                  COL4 + " BETWEEN ? AND ? AND " + COL7 + " = 0");
+      }
+      return deleteDateRangeStatement;
+   }
+
+   // post: returns the compiled statement reading the leftover total from the
+   //       single summary row
+   private synchronized SQLiteStatement getTotalLeftoverStatement() {
+      if (totalLeftoverStatement == null) {
+         totalLeftoverStatement = this.getReadableDatabase().compileStatement
+                 ("SELECT " + SUMMARY_COL2 + " FROM " + SUMMARY_TABLE_NAME);
+      }
+      return totalLeftoverStatement;
+   }
+
+   // post: closes the given statement, if it isn't null
+   private static void closeStatement(SQLiteStatement statement) {
+      if (statement != null) {
+         statement.close();
+      }
+   }
+
+   // post: creates a bill table of the given name with the current columns;
+   //       uses auto-incrementing IDs as the primary identifier for each row
+   //       of data
+   private static void createBillTable(SQLiteDatabase db, String tableName) {
+      db.execSQL("CREATE TABLE " + tableName + " (" + COL1 + " INTEGER " +
+                 "PRIMARY KEY AUTOINCREMENT, " + COL4 + " INTEGER NOT NULL, " +
+                 COL5 + " INTEGER NOT NULL, " + COL6 + " INTEGER NOT NULL, " +
+                 COL7 + " INTEGER NOT NULL DEFAULT 0)");
+   }
+
+   // post: creates an index on the date paid so date ranges can be looked up
+   //       without scanning every bill
+   private void createDateIndex(SQLiteDatabase db) {
+      db.execSQL("CREATE INDEX " + DATE_INDEX_NAME + " ON " + TABLE_NAME +
+                 " (" + COL4 + ")");
+   }
+
+   // post: creates the summary table and seeds its single row with the
+   //       current leftover total (see createInsertTriggers() and
+   //       createRemovalTriggers() for the triggers keeping it up-to-date)
+   private void createSummary(SQLiteDatabase db) {
+      db.execSQL("CREATE TABLE " + SUMMARY_TABLE_NAME + " (" + SUMMARY_COL1 +
+                 " INTEGER PRIMARY KEY CHECK (" + SUMMARY_COL1 + " = 0), " +
+                 SUMMARY_COL2 + " INTEGER NOT NULL)");
+      db.execSQL("INSERT INTO " + SUMMARY_TABLE_NAME + " SELECT 0, " +
+                 "IFNULL(SUM(" + COL6 + " - " + COL5 + "), 0) FROM " +
+                 TABLE_NAME + " WHERE " + COL7 + " = 0");
+   }
+
+   // post: creates the search index and fills it with the display of every
+   //       bill not deleted
+   private void createSearchIndex(SQLiteDatabase db) {
+      db.execSQL("CREATE VIRTUAL TABLE " + SEARCH_TABLE_NAME + " USING fts4(" +
+                 SEARCH_COL1 + ")");
+      fillSearchIndex(db);
+   }
+
+   // pre:  the search index is empty
+   // post: fills the search index with the display of every bill not deleted
+   private static void fillSearchIndex(SQLiteDatabase db) {
+      db.execSQL("INSERT INTO " + SEARCH_TABLE_NAME + " (docid, " +
+                 SEARCH_COL1 + ") SELECT " + COL1 + ", " + displayOf("") +
+                 " FROM " + TABLE_NAME + " WHERE " + COL7 + " = 0");
+   }
+
+   // post: creates the rollup table and fills it from the existing bills
+   private void createRollups(SQLiteDatabase db) {
+      db.execSQL("CREATE TABLE " + ROLLUP_TABLE_NAME + " (" + ROLLUP_COL1 +
+                 " INTEGER PRIMARY KEY, " + ROLLUP_COL2 + " INTEGER NOT " +
+                 "NULL, " + ROLLUP_COL3 + " INTEGER NOT NULL, " +
+                 ROLLUP_COL4 + " INTEGER NOT NULL)");
+      fillRollups(db);
+   }
+
+   // post: adds triggers so that every bill inserted into TABLE_NAME is added
+   //       to the summary row, the search index and the rows of its day,
+   //       month and year
+   private void createInsertTriggers(SQLiteDatabase db) {
+      db.execSQL("CREATE TRIGGER " + TABLE_NAME + "_AfterInsert AFTER INSERT " +
+                 "ON " + TABLE_NAME + " BEGIN UPDATE " + SUMMARY_TABLE_NAME +
+                 " SET " + SUMMARY_COL2 + " = " + SUMMARY_COL2 + " + " +
+                 "NEW." + COL6 + " - NEW." + COL5 + "; END");
+      db.execSQL("CREATE TRIGGER " + SEARCH_TABLE_NAME + "_AfterInsert AFTER " +
+                 "INSERT ON " + TABLE_NAME + " BEGIN INSERT INTO " +
+                 SEARCH_TABLE_NAME + " (docid, " + SEARCH_COL1 + ") VALUES " +
+                 "(NEW." + COL1 + ", " + displayOf("NEW.") + "); END");
+      String newDay = dayKeyOf("NEW." + COL4);
+      db.execSQL("CREATE TRIGGER " + ROLLUP_TABLE_NAME + "_AfterInsert " +
+                 "AFTER INSERT ON " + TABLE_NAME + " BEGIN " +
+                 "INSERT OR IGNORE INTO " + ROLLUP_TABLE_NAME +
+                 " SELECT " + newDay + ", 0, 0, 0" +
+                 " UNION ALL SELECT " + newDay + " / 100 * 100, 0, 0, 0" +
+                 " UNION ALL SELECT " + newDay + " / 10000 * 10000, 0, 0, 0; " +
+                 "UPDATE " + ROLLUP_TABLE_NAME + " SET " + ROLLUP_COL2 +
+                 " = " + ROLLUP_COL2 + " + 1, " + ROLLUP_COL3 + " = " +
+                 ROLLUP_COL3 + " + NEW." + COL5 + ", " + ROLLUP_COL4 + " = " +
+                 ROLLUP_COL4 + " + NEW." + COL6 + " WHERE " + ROLLUP_COL1 +
+                 " IN (" + periodKeysOf(newDay) + "); END");
+   }
+
+   // pre:  the given database is a version 6 (or older, already upgraded)
+   //       database
+   // post: rebuilds TABLE_NAME without LEGACY_COL2, keeping every row's ID
+   //       and the next ID to be given out, then recreates the date index and
+   //       the triggers dropped with the old table and renders the search
+   //       index again from the bills' columns
+   private void dropDisplayColumn(SQLiteDatabase db) {
+      String newTableName = TABLE_NAME + "_New";
+      createBillTable(db, newTableName);
+      db.execSQL("INSERT INTO " + newTableName + " SELECT " + COL1 + ", " +
+                 COL4 + ", " + COL5 + ", " + COL6 + ", " + COL7 + " FROM " +
+                 TABLE_NAME);
+      db.execSQL("DELETE FROM sqlite_sequence WHERE name = '" + newTableName +
+                 "'");
+      db.execSQL("INSERT INTO sqlite_sequence (name, seq) SELECT '" +
+                 newTableName + "', seq FROM sqlite_sequence WHERE name = '" +
+                 TABLE_NAME + "'");
+      db.execSQL("DROP TABLE " + TABLE_NAME);
+      db.execSQL("ALTER TABLE " + newTableName + " RENAME TO " + TABLE_NAME);
+      createDateIndex(db);
+      createInsertTriggers(db);
+      createRemovalTriggers(db);
+      db.execSQL("DELETE FROM " + SEARCH_TABLE_NAME);
+      fillSearchIndex(db);
+   }
+
+   // post: adds triggers so that every bill flagged as deleted, or deleted
+   //       outright without being flagged first, is taken out of the summary
+   //       row, the search index and the rows of its day, month and year
+   //       (removing the rows left without bills); purging a flagged bill
+   //       changes none of them
+   private void createRemovalTriggers(SQLiteDatabase db) {
+      String oldDay = dayKeyOf("OLD." + COL4);
+      String[] names = {TABLE_NAME, SEARCH_TABLE_NAME, ROLLUP_TABLE_NAME};
+      String[] bodies = {
+         "UPDATE " + SUMMARY_TABLE_NAME + " SET " + SUMMARY_COL2 + " = " +
+         SUMMARY_COL2 + " - (OLD." + COL6 + " - OLD." + COL5 + ");",
+
+         "DELETE FROM " + SEARCH_TABLE_NAME + " WHERE docid = OLD." + COL1 +
+         ";",
+
+         "UPDATE " + ROLLUP_TABLE_NAME + " SET " + ROLLUP_COL2 + " = " +
+         ROLLUP_COL2 + " - 1, " + ROLLUP_COL3 + " = " + ROLLUP_COL3 +
+         " - OLD." + COL5 + ", " + ROLLUP_COL4 + " = " + ROLLUP_COL4 +
+         " - OLD." + COL6 + " WHERE " + ROLLUP_COL1 + " IN (" +
+         periodKeysOf(oldDay) + "); DELETE FROM " + ROLLUP_TABLE_NAME +
+         " WHERE " + ROLLUP_COL1 + " IN (" + periodKeysOf(oldDay) +
+         ") AND " + ROLLUP_COL2 + " = 0;"
+      };
+      for (int i = 0; i < names.length; i++) {
+         db.execSQL("CREATE TRIGGER " + names[i] + "_AfterDelete AFTER " +
+                    "DELETE ON " + TABLE_NAME + " WHEN OLD." + COL7 +
+                    " = 0 BEGIN " + bodies[i] + " END");
+         db.execSQL("CREATE TRIGGER " + names[i] + "_AfterSoftDelete AFTER " +
+                    "UPDATE OF " + COL7 + " ON " + TABLE_NAME + " WHEN OLD." +
+                    COL7 + " = 0 AND NEW." + COL7 + " != 0 BEGIN " +
+                    bodies[i] + " END");
+      }
+   }
+
+   // pre:  the rollup table is empty
+   // post: fills the rollup table from the bills not deleted: the days in
+   //       one pass over TABLE_NAME, then the months from the days and the
+   //       years from the months
+   private static void fillRollups(SQLiteDatabase db) {
+      db.execSQL("INSERT INTO " + ROLLUP_TABLE_NAME + " SELECT " +
+                 dayKeyOf(COL4) + ", COUNT(*), SUM(" + COL5 + "), SUM(" +
+                 COL6 + ") FROM " + TABLE_NAME + " WHERE " + COL7 + " = 0" +
+                 " GROUP BY 1");
+      db.execSQL("INSERT INTO " + ROLLUP_TABLE_NAME + " SELECT " +
+                 ROLLUP_COL1 + " / 100 * 100, SUM(" + ROLLUP_COL2 + "), SUM(" +
+                 ROLLUP_COL3 + "), SUM(" + ROLLUP_COL4 + ") FROM " +
+                 ROLLUP_TABLE_NAME + " WHERE " + ROLLUP_COL1 + " % 100 != 0" +
+                 " GROUP BY 1");
+      db.execSQL("INSERT INTO " + ROLLUP_TABLE_NAME + " SELECT " +
+                 ROLLUP_COL1 + " / 10000 * 10000, SUM(" + ROLLUP_COL2 + "), " +
+                 "SUM(" + ROLLUP_COL3 + "), SUM(" + ROLLUP_COL4 + ") FROM " +
+                 ROLLUP_TABLE_NAME + " WHERE " + ROLLUP_COL1 + " % 100 = 0" +
+                 " AND " + ROLLUP_COL1 + " % 10000 != 0 GROUP BY 1");
+   }
+
+   // post: returns the epoch day of the given SpendingRollup day key
+   private static int epochDayOfDayKey(int dayKey) {
+      return BillDates.toEpochDay(dayKey / 10000, (dayKey / 100) % 100,
+                                  dayKey % 100);
+   }
+
+   // post: returns the SQL expression of the SpendingRollup day key of the
+   //       epoch day in the given column
+   private static String dayKeyOf(String epochDayColumn) {
+      return "CAST(strftime('%Y%m%d', " + epochDayColumn + " * 86400, " +
+             "'unixepoch') AS INTEGER)";
+   }
+
+   // post: returns the SQL expression of the display (see BillDisplays) of
+   //       the bill whose columns have the given prefix (e.g. "NEW.")
+   private static String displayOf(String prefix) {
+      return "'(' || strftime('%m/%d/%Y', " + prefix + COL4 + " * 86400, " +
+             "'unixepoch') || '" + BillDisplays.SPENT_LABEL + "' || " +
+             amountOf(prefix + COL5) + " || '" + BillDisplays.ALLOWED_LABEL +
+             "' || " + amountOf(prefix + COL6);
+   }
+
+   // post: returns the SQL expression of the amount (in cents) in the given
+   //       column with two decimals, as Money.format() writes it
+   private static String amountOf(String centsColumn) {
+      return "(CASE WHEN " + centsColumn + " < 0 THEN '-' ELSE '' END || " +
+             "(abs(" + centsColumn + ") / 100) || '.' || substr('0' || " +
+             "(abs(" + centsColumn + ") % 100), -2))";
+   }
+
+   // post: returns the SQL list of the day, month and year keys of the given
+   //       day key expression
+   private static String periodKeysOf(String dayKey) {
+      return dayKey + ", " + dayKey + " / 100 * 100, " + dayKey +
+             " / 10000 * 10000";
+   }
+
+   // pre:  the given database is a version 1 or 2 database
+   // post: adds the date paid, amount paid and money allowed columns to
+   //       TABLE_NAME and fills them in for every existing bill by parsing its
+   //       display; rows are read in batches of MIGRATION_BATCH_SIZE in ID
+   //       order so only one batch is in memory at a time
+   private void addTypedColumns(SQLiteDatabase db) {
+      db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COL4 +
+                 " INTEGER NOT NULL DEFAULT 0");
+      db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COL5 +
+                 " INTEGER NOT NULL DEFAULT 0");
+      db.execSQL("ALTER TABLE " + TABLE_NAME + " ADD COLUMN " + COL6 +
+                 " INTEGER NOT NULL DEFAULT 0");
+
+      SQLiteStatement updateStatement = db.compileStatement
+              ("UPDATE " + TABLE_NAME + " SET " + COL4 + " = ?, " + COL5 +
+               " = ?, " + COL6 + " = ? WHERE " + COL1 + " = ?");
+      String batchQuery = "SELECT " + COL1 + ", " + LEGACY_COL2 + ", " +
+                          LEGACY_COL3 +
+                          " FROM " + TABLE_NAME + " WHERE " + COL1 + " > ?" +
+                          " ORDER BY " + COL1 + " LIMIT " +
+                          MIGRATION_BATCH_SIZE;
+      try {
+         long lastID = Long.MIN_VALUE;
+         boolean batchWasFull = true;
+         while (batchWasFull) {
+            Cursor batchCursor = db.rawQuery
+                    (batchQuery, new String[] {Long.toString(lastID)});
+            try {
+               batchWasFull = (batchCursor.getCount() == MIGRATION_BATCH_SIZE);
+               while (batchCursor.moveToNext()) {
+                  lastID = batchCursor.getLong(0);
+                  String displayedBill = batchCursor.getString(1);
+                  if (displayedBill == null) {
+                     displayedBill = "";
+                  }
+                  long leftoverCents =
+                          Math.round(batchCursor.getDouble(2) * 100);
+
+                  int datePaid = parseLegacyDate(displayedBill);
+                  long amountPaid = parseLegacyCents(displayedBill, "Spent");
+                  long moneyAllowed = parseLegacyCents(displayedBill,
+                                                       "Allowed");
+                  if (amountPaid == Long.MIN_VALUE
+                          && moneyAllowed == Long.MIN_VALUE) {
+                     amountPaid = 0;
+                  }
+                  if (amountPaid == Long.MIN_VALUE) {
+                     amountPaid = moneyAllowed - leftoverCents;
+                  } else if (moneyAllowed == Long.MIN_VALUE) {
+                     moneyAllowed = amountPaid + leftoverCents;
+                  }
+
+                  updateStatement.bindLong(1, (datePaid == BillDates.INVALID)
+                                              ? 0 : datePaid);
+                  updateStatement.bindLong(2, amountPaid);
+                  updateStatement.bindLong(3, moneyAllowed);
+                  updateStatement.bindLong(4, lastID);
+                  updateStatement.executeUpdateDelete();
+               }
+            } finally {
+               batchCursor.close();
+            }
+         }
+      } finally {
+         updateStatement.close();
+      }
+   }
+
+   // post: returns the epoch day of the date between the parentheses at the
+   //       start of the given legacy display, or BillDates.INVALID if there
+   //       isn't a valid one
+   private static int parseLegacyDate(String displayedBill) {
+      int closingParenthesis = displayedBill.indexOf(')');
+      if (!displayedBill.startsWith("(") || closingParenthesis == -1) {
+         return BillDates.INVALID;
+      }
+      return BillDates.parseEpochDay(displayedBill, 1, closingParenthesis);
+   }
+
+   // post: returns the amount (in cents) following the given label in the
+   //       given legacy display (e.g. 1234 for "Spent: 12.34"), or
+   //       Long.MIN_VALUE if there isn't a valid one; accepts both '.' and ','
+   //       as the decimal separator since the display was formatted with the
+   //       device's locale
+   private static long parseLegacyCents(String displayedBill, String label) {
+      int labelIndex = displayedBill.indexOf(label);
+      if (labelIndex == -1) {
+         return Long.MIN_VALUE;
+      }
+      int start = displayedBill.indexOf(':', labelIndex) + 1;
+      if (start == 0) {
+         return Long.MIN_VALUE;
+      }
+      int end = displayedBill.indexOf(';', start);
+      if (end == -1) {
+         end = displayedBill.length();
+      }
+      String amount = displayedBill.substring(start, end).trim()
+                                   .replace(',', '.');
+      try {
+         return Math.round(Double.parseDouble(amount) * 100);
+      } catch (NumberFormatException e) {
+         return Long.MIN_VALUE;
+      }
    }
 
 }
@@ -0,0 +1,246 @@
+/*
+ * Class used for representing the dates entered in the ViewHistory activity's
+ * delete dialog, where the month and day may be "XX" and the year may be
+ * "XXXX" (see HistoryDeleteDialog's class header).
+ *
+ * The text is validated and compiled once, into a mask and value over
+ * BillDates' packed dates, so checking the epoch day of a bill is one
+ * conversion and one comparison, without allocating. The same pattern is
+ * turned into the ranges of epoch days it covers so the database can find
+ * the matching bills through its date index.
+ */
+
+package com.example.restaurantspendingtracker;
+
+public final class DatePattern {
+
+   // value of a component that was entered as "X"s
+   public static final int ANY = -1;
+
+   // returned by parseComponent() when a component isn't valid
+   private static final int INVALID_COMPONENT = -2;
+
+   // year whose February has the most days, used to check the day of
+   // patterns whose year is ANY
+   private static final int LEAP_YEAR = 2000;
+
+   private final int month;
+   private final int day;
+   private final int year;
+
+   // bits of a packed date that must equal those of 'value' for it to match
+   private final int mask;
+   private final int value;
+
+   // pre:  each of the given components is either ANY or a valid value
+   // post: constructs a DatePattern with the given month (1-12), day, and year
+   public DatePattern(int month, int day, int year) {
+      this.month = month;
+      this.day = day;
+      this.year = year;
+      int mask = 0;
+      if (year != ANY) {
+         mask |= -1 << BillDates.YEAR_SHIFT;
+      }
+      if (month != ANY) {
+         mask |= BillDates.MONTH_MASK << BillDates.MONTH_SHIFT;
+      }
+      if (day != ANY) {
+         mask |= BillDates.DAY_MASK;
+      }
+      this.mask = mask;
+      this.value = BillDates.packDate((year == ANY) ? 0 : year,
+                                      (month == ANY) ? 0 : month,
+                                      (day == ANY) ? 0 : day);
+   }
+
+   // pre:  the given text is a valid pattern (see tryParse())
+   // post: returns the DatePattern the given text represents; throws an
+   //       IllegalArgumentException if it isn't valid
+   public static DatePattern parse(CharSequence date) {
+      DatePattern pattern = tryParse(date);
+      if (pattern == null) {
+         throw new IllegalArgumentException("Invalid date pattern: " + date);
+      }
+      return pattern;
+   }
+
+   // post: returns the DatePattern the given text represents if it follows
+   //       the format "[M]M/[d]d/yyyy", where 'MM' and 'dd' may be "XX" and
+   //       'yyyy' may be "XXXX" (in either case), and some date can match it
+   //       (e.g. "02/29/XXXX" but not "02/30/XXXX" or "02/29/2019"); returns
+   //       null otherwise
+   public static DatePattern tryParse(CharSequence date) {
+      int length = date.length();
+      int firstSlash = indexOf(date, '/', 0, length);
+      int secondSlash = indexOf(date, '/', firstSlash + 1, length);
+      if (firstSlash == -1 || secondSlash == -1
+              || indexOf(date, '/', secondSlash + 1, length) != -1) {
+         return null;
+      }
+      int month = parseComponent(date, 0, firstSlash, 2);
+      int day = parseComponent(date, firstSlash + 1, secondSlash, 2);
+      int year = parseComponent(date, secondSlash + 1, length, 4);
+      if (month == INVALID_COMPONENT || day == INVALID_COMPONENT
+              || year == INVALID_COMPONENT) {
+         return null;
+      }
+      if (month != ANY && (month < 1 || month > 12)) {
+         return null;
+      }
+      if (day != ANY) {
+         int maxDay = (month == ANY) ? 31 : BillDates.daysInMonth
+                 ((year == ANY) ? LEAP_YEAR : year, month);
+         if (day < 1 || day > maxDay) {
+            return null;
+         }
+      }
+      return new DatePattern(month, day, year);
+   }
+
+   // post: returns true if a bill paid on the given epoch day matches this
+   //       pattern, returns false otherwise
+   public boolean matches(int epochDay) {
+      return mask == 0
+             || (BillDates.toPackedDate(epochDay) & mask) == value;
+   }
+
+   // pre:  minEpochDay <= maxEpochDay
+   // post: returns the ranges of epoch days between 'minEpochDay' and
+   //       'maxEpochDay' (inclusive) that match this pattern, as an array of
+   //       alternating start and end days (both inclusive) in increasing
+   //       order; adjacent matching days are merged into one range
+   public int[] toEpochDayRanges(int minEpochDay, int maxEpochDay) {
+      int firstYear = (year == ANY) ? BillDates.yearOf(minEpochDay) : year;
+      int lastYear = (year == ANY) ? BillDates.yearOf(maxEpochDay) : year;
+      int firstMonth = (month == ANY) ? 1 : month;
+      int lastMonth = (month == ANY) ? 12 : month;
+
+      RangeBuilder ranges = new RangeBuilder(minEpochDay, maxEpochDay);
+      for (int y = firstYear; y <= lastYear; y++) {
+         for (int m = firstMonth; m <= lastMonth; m++) {
+            int daysInMonth = BillDates.daysInMonth(y, m);
+            if (day == ANY) {
+               ranges.add(BillDates.toEpochDay(y, m, 1),
+                          BillDates.toEpochDay(y, m, daysInMonth));
+            } else if (day <= daysInMonth) {
+               int matchingDay = BillDates.toEpochDay(y, m, day);
+               ranges.add(matchingDay, matchingDay);
+            }
+         }
+      }
+      return ranges.toArray();
+   }
+
+   // post: returns this pattern in the format "MM/dd/yyyy", using "XX" and
+   //       "XXXX" for the components that match anything
+   @Override
+   public String toString() {
+      return formatComponent(month, 2) + "/" + formatComponent(day, 2) + "/"
+             + formatComponent(year, 4);
+   }
+
+   // post: returns ANY if the characters of the given text between 'start'
+   //       (inclusive) and 'end' (exclusive) are 'width' "X"s, the number
+   //       they represent if they are 1 to 'width' digits, or
+   //       INVALID_COMPONENT otherwise
+   private static int parseComponent(CharSequence text, int start, int end,
+                                     int width) {
+      int length = end - start;
+      if (length < 1 || length > width) {
+         return INVALID_COMPONENT;
+      }
+      char first = text.charAt(start);
+      if (first == 'X' || first == 'x') {
+         for (int i = start + 1; i < end; i++) {
+            if (text.charAt(i) != 'X' && text.charAt(i) != 'x') {
+               return INVALID_COMPONENT;
+            }
+         }
+         return (length == width) ? ANY : INVALID_COMPONENT;
+      }
+      int number = 0;
+      for (int i = start; i < end; i++) {
+         char c = text.charAt(i);
+         if (c < '0' || c > '9') {
+            return INVALID_COMPONENT;
+         }
+         number = number * 10 + (c - '0');
+      }
+      return number;
+   }
+
+   // post: returns the index of the first 'target' in the given text between
+   //       'start' (inclusive) and 'end' (exclusive), or -1 if there isn't
+   //       one
+   private static int indexOf(CharSequence text, char target, int start,
+                              int end) {
+      if (start < 0) {
+         return -1;
+      }
+      for (int i = start; i < end; i++) {
+         if (text.charAt(i) == target) {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   // post: returns the given component padded with leading zeros to the
+   //       given width, or 'width' "X"s if it is ANY
+   private static String formatComponent(int component, int width) {
+      StringBuilder formatted = new StringBuilder(width);
+      String digits = (component == ANY) ? "" : Integer.toString(component);
+      for (int i = digits.length(); i < width; i++) {
+         formatted.append(component == ANY ? 'X' : '0');
+      }
+      return formatted.append(digits).toString();
+   }
+
+   /*
+    * Collects increasing ranges of epoch days, clipping them to a window and
+    * merging ranges that touch.
+    */
+   private static class RangeBuilder {
+
+      private final int windowStart;
+      private final int windowEnd;
+      private int[] bounds = new int[16];
+      private int size;
+
+      private RangeBuilder(int windowStart, int windowEnd) {
+         this.windowStart = windowStart;
+         this.windowEnd = windowEnd;
+      }
+
+      // pre:  'start' is greater than the end of every range added before
+      // post: adds the range from 'start' to 'end' (inclusive) clipped to the
+      //       window, merging it into the last range if they touch
+      private void add(int start, int end) {
+         start = Math.max(start, windowStart);
+         end = Math.min(end, windowEnd);
+         if (start > end) {
+            return;
+         }
+         if (size > 0 && bounds[size - 1] + 1 >= start) {
+            bounds[size - 1] = end;
+            return;
+         }
+         if (size == bounds.length) {
+            int[] grown = new int[size * 2];
+            System.arraycopy(bounds, 0, grown, 0, size);
+            bounds = grown;
+         }
+         bounds[size++] = start;
+         bounds[size++] = end;
+      }
+
+      private int[] toArray() {
+         int[] result = new int[size];
+         System.arraycopy(bounds, 0, result, 0, size);
+         return result;
+      }
+
+   }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Class used for reporting the totals of the bills paid between two dates
+ * (see BillRepository.getDateRangeTotals()).
+ */
+
+package com.example.restaurantspendingtracker;
+
+public final class DateRangeTotals {
+
+   private final int firstDay; // epoch day
+   private final int lastDay; // epoch day
+   private final int billCount;
+   private final long amountPaid; // in cents
+   private final long moneyAllowed; // in cents
+
+   // post: constructs the totals of the 'billCount' bills paid from
+   //       'firstDay' to 'lastDay' (inclusive epoch days), with the given
+   //       amounts (in cents)
+   public DateRangeTotals(int firstDay, int lastDay, int billCount,
+                          long amountPaid, long moneyAllowed) {
+      this.firstDay = firstDay;
+      this.lastDay = lastDay;
+      this.billCount = billCount;
+      this.amountPaid = amountPaid;
+      this.moneyAllowed = moneyAllowed;
+   }
+
+   // post: returns the first epoch day of the range
+   public int getFirstDay() {
+      return firstDay;
+   }
+
+   // post: returns the last epoch day of the range
+   public int getLastDay() {
+      return lastDay;
+   }
+
+   // post: returns the number of bills paid in the range
+   public int getBillCount() {
+      return billCount;
+   }
+
+   // post: returns the sum of the amounts paid (in cents) in the range
+   public long getAmountPaid() {
+      return amountPaid;
+   }
+
+   // post: returns the sum of the money allowed (in cents) in the range
+   public long getMoneyAllowed() {
+      return moneyAllowed;
+   }
+
+   // post: returns the leftover money (in cents) of the range
+   public long getLeftoverCents() {
+      return moneyAllowed - amountPaid;
+   }
+
+}
@@ -1,5 +1,21 @@
 /*
  * Class used for managing the display of the bills in the bill history.
+ *
+ * The adapter doesn't keep copies of the bills; it shows the bills of the
+ * BillStore it is given, either all of them or, while searching, only the
+ * ones whose IDs are listed in 'viewableIDs'. Both are gap buffers looked up
+ * by binary search, so removing or putting back a bill doesn't shift or
+ * renumber the bills in-view.
+ *
+ * Searches go to the database through the BillRepository, off the UI thread.
+ * A new search cancels the one still pending, a search that extends the
+ * previous one is answered by narrowing the previous results in memory, and
+ * the results are shown by notifying only the ranges of bills that were
+ * inserted or removed.
+ *
+ * Displays are rendered from the BillStore's columns when a row is bound,
+ * into characters its ViewHolder reuses, and the bill IDs serve as stable
+ * item IDs, so scrolling doesn't create a String per row.
  */
 
 package com.example.restaurantspendingtracker;
@@ -7,38 +23,48 @@ package com.example.restaurantspendingtracker;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.Filter;
-import android.widget.Filterable;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.Future;
 
 public class HistoryRVAdapter
-        extends RecyclerView.Adapter<HistoryRVAdapter.ViewHolder>
-        implements Filterable {
+        extends RecyclerView.Adapter<HistoryRVAdapter.ViewHolder> {
 
-   private List<String> viewableBills; // the bills in-view
+   // most bills a search may narrow down in memory; searches with more
+   // previous results than this go to the database's search index instead
+   private static final int NARROWING_LIMIT = 2000;
 
-   private List<Integer> viewableIDs; // the IDs of the bills in-view (ID
-                                      // matches the index of its corresponding
-                                      // bill in 'viewableBills')
+   private final BillStore billStore; // every loaded bill
 
-   private List<Integer> allIDs;
-   private List<String> allBills;
+   private final BillRepository billRepository; // used for searching the
+                                                // bills
 
-   // post: constructs a HistoryRVAdapter object with 'viewableIDs' and this
-   //       'allIDs' each set to copies of the given 'allIDs', and
-   //       'viewableBills' and this 'allBills' each set to copies of the given
-   //       'allBills'
-   public HistoryRVAdapter(List<Integer> allIDs, List<String> allBills) {
-      this.viewableIDs = new ArrayList<>(allIDs);
-      this.viewableBills = new ArrayList<>(allBills);
-      this.allIDs = new ArrayList<>(allIDs);
-      this.allBills = new ArrayList<>(allBills);
+   private BillIDList viewableIDs; // the IDs of the bills in-view, in
+                                   // decreasing order; null when every bill
+                                   // is in-view
+
+   // query of the search whose results are in-view
+   private BillSearchQuery currentQuery = BillSearchQuery.parse("");
+
+   // incremented by every search; the results of a search are only shown
+   // while it is the latest one
+   private int latestSearch;
+   private Future<?> pendingSearch; // database search not answered yet
+
+   // reused for rendering the displays matched against queries in memory
+   private final StringBuilder scratchDisplay =
+           new StringBuilder(BillDisplays.MAX_LENGTH);
+
+   // post: constructs a HistoryRVAdapter object showing every bill of the
+   //       given BillStore and searching them through the given repository
+   public HistoryRVAdapter(BillStore billStore,
+                           BillRepository billRepository) {
+      this.billStore = billStore;
+      this.billRepository = billRepository;
+      setHasStableIds(true);
    }
 
    // post: returns a new custom ViewHolder object
@@ -51,83 +77,300 @@ public class HistoryRVAdapter
       return new ViewHolder(mView);
    }
 
-   // post: displays the bill present in 'viewableBills' at index 'position' in
-   //       the given ViewHolder's tvBillDisplay
+   // post: displays the bill in-view at index 'position' in the given
+   //       ViewHolder's tvBillDisplay, unless it already displays that bill
    @Override
    public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-      holder.tvBillDisplay.setText(viewableBills.get(position));
+      long start = Metrics.start();
+      int ID = IDAt(viewableIDs, position);
+      int renderedCount = 0;
+      if (holder.boundID != ID) {
+         holder.boundID = ID;
+         holder.bind(billStore, getStoreIndex(position));
+         renderedCount = 1;
+      }
+      Metrics.stop(Metrics.BIND, start, renderedCount);
+   }
+
+   // post: returns the ID of the bill in-view at index 'position', which
+   //       stays the same wherever the bill moves
+   @Override
+   public long getItemId(int position) {
+      return IDAt(viewableIDs, position);
+   }
+
+   // post: returns whether the display of the bill at the given index of the
+   //       BillStore matches the given query
+   private boolean displayMatches(BillSearchQuery query, int storeIndex) {
+      scratchDisplay.setLength(0);
+      billStore.appendDisplay(scratchDisplay, storeIndex);
+      return query.matches(scratchDisplay);
    }
 
    // post: returns the number of bills in-view
    @Override
    public int getItemCount() {
-      return viewableBills.size();
+      return (viewableIDs == null) ? billStore.size() : viewableIDs.size();
    }
 
-   // post: returns a new Filter object
-   @Override
-   public Filter getFilter() {
-      return billFilter;
-   }
-
-   private Filter billFilter = new Filter() {
-      // post: returns a new FilterResults object whose values are bills that
-      //       contain the given CharSequence (ignores case and spaces around
-      //       the CharSequence)
-      @Override
-      protected FilterResults performFiltering(CharSequence charSequence) {
-         List<String> resultingBills = new ArrayList<>();
-
-         viewableIDs.clear();
-         viewableBills.clear();
-
-         if (charSequence == null || charSequence.length() == 0) {
-            resultingBills.addAll(allBills);
-            viewableIDs.addAll(allIDs);
-            viewableBills.addAll(allBills);
-         } else {
-            String processedCharSeq =
-                    charSequence.toString().toLowerCase().trim();
-
-            for (int i = allBills.size() - 1; i >= 0; i--) {
-               String bill = allBills.get(i);
-               if (bill.toLowerCase().contains(processedCharSeq)) {
-                  resultingBills.add(0, bill);
-                  viewableIDs.add(0, allIDs.get(i));
-                  viewableBills.add(0, bill);
-               }
+   // pre:  0 <= position < getItemCount()
+   // post: returns the index in the BillStore of the bill in-view at the
+   //       given position
+   public int getStoreIndex(int position) {
+      return (viewableIDs == null)
+             ? position : billStore.indexOfID(viewableIDs.get(position));
+   }
+
+   // post: shows only the bills matching the given text (see
+   //       BillSearchQuery), or every bill if the text has no words; the
+   //       database search (if any) runs in the background and any earlier
+   //       search that hasn't finished is cancelled
+   public void search(CharSequence text) {
+      final BillSearchQuery query = BillSearchQuery.parse(text);
+      final int search = ++latestSearch;
+      if (pendingSearch != null) {
+         pendingSearch.cancel(false);
+         pendingSearch = null;
+      }
+      if (query.matchesEverything()) {
+         showMatchingIDs(query, null);
+         return;
+      }
+
+      // when the new query extends the one in-view, its matches are among
+      // the bills in-view, so those few can be checked directly
+      if (viewableIDs != null && viewableIDs.size() <= NARROWING_LIMIT
+              && query.isNarrowingOf(currentQuery)) {
+         long start = Metrics.start();
+         int checkedCount = viewableIDs.size();
+         int[] matchingIDs = narrow(query);
+         Metrics.stop(Metrics.FILTER_NARROW, start, checkedCount);
+         showMatchingIDs(query, matchingIDs);
+         return;
+      }
+
+      pendingSearch = billRepository.findMatchingIDs
+              (query, new BillRepository.Callback<int[]>() {
+         // post: shows the matching bills, unless a newer search started
+         //       meanwhile
+         @Override
+         public void onResult(int[] matchingIDs) {
+            if (search == latestSearch) {
+               pendingSearch = null;
+               showMatchingIDs(query, matchingIDs);
             }
          }
 
-         FilterResults mFilterResults = new FilterResults();
-         mFilterResults.values = resultingBills;
+         // post: leaves the bills shown as they are
+         @Override
+         public void onError(RuntimeException failure) {
+            if (search == latestSearch) {
+               pendingSearch = null;
+            }
+         }
+      });
+   }
 
-         return mFilterResults;
+   // post: cancels any search in progress; results of earlier searches are
+   //       ignored from now on
+   public void stopSearching() {
+      latestSearch++;
+      if (pendingSearch != null) {
+         pendingSearch.cancel(false);
+         pendingSearch = null;
       }
+   }
 
-      @Override
-      protected void publishResults(CharSequence charSequence,
-                                    FilterResults filterResults) {
-         notifyDataSetChanged();
+   // pre:  'viewableIDs' is not null
+   // post: returns the IDs of the bills in-view whose displays match the
+   //       given query, keeping their order
+   private int[] narrow(BillSearchQuery query) {
+      int[] matchingIDs = new int[viewableIDs.size()];
+      int matchingCount = 0;
+      for (int i = 0; i < viewableIDs.size(); i++) {
+         int ID = viewableIDs.get(i);
+         if (displayMatches(query, billStore.indexOfID(ID))) {
+            matchingIDs[matchingCount++] = ID;
+         }
       }
-   };
+      int[] result = new int[matchingCount];
+      System.arraycopy(matchingIDs, 0, result, 0, matchingCount);
+      return result;
+   }
 
-   // pre:  'allBills' contains a bill at the given index
-   // post: removes the bill at the given index from the RV adapter
-   public void removeIDAndBill(int indexInAll){
-      int ID = allIDs.remove(indexInAll);
-      allBills.remove(indexInAll);
-      int positionInRV = viewableIDs.indexOf(ID);
-      if (positionInRV != -1) {
-         viewableIDs.remove(positionInRV);
-         viewableBills.remove(positionInRV);
+   // pre:  'matchingIDs' is in decreasing order, or null if every bill
+   //       matches
+   // post: shows the bills of the given IDs that are in the BillStore,
+   //       notifying only the ranges of bills that came into or went out of
+   //       view
+   private void showMatchingIDs(BillSearchQuery query, int[] matchingIDs) {
+      long start = Metrics.start();
+      BillIDList newIDs = null;
+      if (matchingIDs != null) {
+         newIDs = new BillIDList(matchingIDs.length);
+         for (int ID : matchingIDs) {
+            if (billStore.indexOfID(ID) >= 0) {
+               newIDs.append(ID);
+            }
+         }
+      }
+
+      BillIDList oldIDs = viewableIDs;
+      int oldCount = getItemCount();
+      currentQuery = query;
+      viewableIDs = newIDs;
+      dispatchDifference(oldIDs, oldCount, newIDs, getItemCount());
+      Metrics.stop(Metrics.FILTER_SHOW, start, getItemCount());
+   }
+
+   // pre:  both ID lists are in decreasing order; a null list stands for
+   //       every bill of the BillStore
+   // post: notifies the RecyclerView of the ranges of positions inserted and
+   //       removed when going from the old list of IDs in-view to the new
+   //       one, in a single pass over both
+   private void dispatchDifference(BillIDList oldIDs, int oldCount,
+                                   BillIDList newIDs, int newCount) {
+      int position = 0; // position in the list as updated so far
+      int oldPosition = 0;
+      int newPosition = 0;
+      while (oldPosition < oldCount || newPosition < newCount) {
+         int removedCount = 0;
+         while (oldPosition < oldCount
+                 && (newPosition == newCount
+                     || IDAt(oldIDs, oldPosition)
+                        > IDAt(newIDs, newPosition))) {
+            oldPosition++;
+            removedCount++;
+         }
+         if (removedCount > 0) {
+            notifyItemRangeRemoved(position, removedCount);
+         }
+
+         int insertedCount = 0;
+         while (newPosition < newCount
+                 && (oldPosition == oldCount
+                     || IDAt(newIDs, newPosition)
+                        > IDAt(oldIDs, oldPosition))) {
+            newPosition++;
+            insertedCount++;
+         }
+         if (insertedCount > 0) {
+            notifyItemRangeInserted(position, insertedCount);
+            position += insertedCount;
+         }
+
+         while (oldPosition < oldCount && newPosition < newCount
+                 && IDAt(oldIDs, oldPosition)
+                    == IDAt(newIDs, newPosition)) {
+            oldPosition++;
+            newPosition++;
+            position++;
+         }
+      }
+   }
+
+   // post: returns the ID at the given position of the given ID list, where
+   //       a null list stands for every bill of the BillStore
+   private int IDAt(BillIDList IDs, int position) {
+      return (IDs == null) ? billStore.getID(position) : IDs.get(position);
+   }
+
+   // pre:  the bills from index 'firstNewIndex' onwards were just appended to
+   //       the BillStore
+   // post: shows the appended bills that match the query in-view
+   public void onBillsAppended(int firstNewIndex) {
+      int firstNewPosition = getItemCount();
+      if (viewableIDs != null) {
+         addMatchingBillsFrom(firstNewIndex);
+      }
+      notifyItemRangeInserted(firstNewPosition,
+                              getItemCount() - firstNewPosition);
+   }
+
+   // pre:  every bill was just removed from the BillStore
+   // post: cancels any search in progress and goes back to showing every
+   //       bill
+   public void onBillsCleared() {
+      stopSearching();
+      currentQuery = BillSearchQuery.parse("");
+      viewableIDs = null;
+      notifyDataSetChanged();
+   }
+
+   // pre:  the BillStore contains a bill at the given index
+   // post: removes the bill at the given index from the BillStore and from
+   //       view
+   public void removeBill(int storeIndex) {
+      int positionInRV = storeIndex;
+      if (viewableIDs != null) {
+         positionInRV = viewableIDs.indexOf(billStore.getID(storeIndex));
+         if (positionInRV >= 0) {
+            viewableIDs.remove(positionInRV);
+         }
+      }
+      billStore.remove(storeIndex);
+      if (positionInRV >= 0) {
          notifyItemRemoved(positionInRV);
       }
    }
 
-   // post: returns the IDs of the viewable bills from top to bottom
-   public List<Integer> getViewableIDs() {
-      return viewableIDs;
+   // pre:  the BillStore doesn't contain the given ID
+   // post: puts the given bill back in the BillStore at the index of its ID
+   //       and, if it matches the query in-view, back in view
+   public void insertBill(int ID, int datePaid, long amountPaid,
+                          long allowed) {
+      int storeIndex = billStore.insert(ID, datePaid, amountPaid, allowed);
+      int positionInRV = storeIndex;
+      if (viewableIDs != null) {
+         positionInRV = displayMatches(currentQuery, storeIndex)
+                        ? viewableIDs.insert(ID) : -1;
+      }
+      if (positionInRV != -1) {
+         notifyItemInserted(positionInRV);
+      }
+   }
+
+   // pre:  'storeIndices' holds indices of bills in the BillStore, in
+   //       increasing order
+   // post: removes the bills at the given indices from the BillStore and
+   //       from view, last one first so the earlier indices stay valid,
+   //       notifying each run of adjacent removed positions at once
+   public void removeBills(int[] storeIndices) {
+      int runStart = -1; // lowest position of the run of removed positions
+      int runLength = 0;
+      for (int i = storeIndices.length - 1; i >= 0; i--) {
+         int storeIndex = storeIndices[i];
+         int positionInRV = storeIndex;
+         if (viewableIDs != null) {
+            positionInRV = viewableIDs.indexOf(billStore.getID(storeIndex));
+            if (positionInRV >= 0) {
+               viewableIDs.remove(positionInRV);
+            }
+         }
+         billStore.remove(storeIndex);
+         if (positionInRV >= 0) {
+            if (runLength > 0 && positionInRV != runStart - 1) {
+               notifyItemRangeRemoved(runStart, runLength);
+               runLength = 0;
+            }
+            runStart = positionInRV;
+            runLength++;
+         }
+      }
+      if (runLength > 0) {
+         notifyItemRangeRemoved(runStart, runLength);
+      }
+   }
+
+   // pre:  'viewableIDs' is not null
+   // post: adds the IDs of the bills from 'firstIndex' to the end of the
+   //       BillStore that match the query in-view to 'viewableIDs'
+   private void addMatchingBillsFrom(int firstIndex) {
+      for (int i = firstIndex; i < billStore.size(); i++) {
+         if (displayMatches(currentQuery, i)) {
+            viewableIDs.append(billStore.getID(i));
+         }
+      }
    }
 
    /*
@@ -140,11 +383,32 @@ public class HistoryRVAdapter
 
       private TextView tvBillDisplay;
 
+      private int boundID = -1; // ID of the bill displayed; -1 if none
+
+      // reused for rendering each bill this ViewHolder displays
+      private final StringBuilder display =
+              new StringBuilder(BillDisplays.MAX_LENGTH);
+      private char[] displayChars = new char[BillDisplays.MAX_LENGTH];
+
       public ViewHolder(@NonNull View itemView) {
          super(itemView);
          tvBillDisplay = itemView.findViewById(R.id.tvBillDisplay);
       }
 
+      // pre:  0 <= storeIndex < billStore.size()
+      // post: renders the display of the bill at the given index of the
+      //       given BillStore into tvBillDisplay
+      private void bind(BillStore billStore, int storeIndex) {
+         display.setLength(0);
+         billStore.appendDisplay(display, storeIndex);
+         int length = display.length();
+         if (length > displayChars.length) {
+            displayChars = new char[length];
+         }
+         display.getChars(0, length, displayChars, 0);
+         tvBillDisplay.setText(displayChars, 0, length);
+      }
+
    }
 
 }
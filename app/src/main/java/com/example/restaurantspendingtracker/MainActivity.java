@@ -6,20 +6,29 @@
  * It displays the current leftover amount of money
  * (total money allowed - total money spent), and it offers access to the
  * activity used to add a bill and the activity used to view the bill history.
+ *
+ * The database is only opened by the BillRepository's threads, so the first
+ * frame never waits for it: the last total shown is kept in the shared
+ * preferences and shown right away, then replaced once the current total is
+ * read in the background, at which point the activity reports itself fully
+ * drawn (logged by the system as "Fully drawn", next to "Displayed" for the
+ * first frame). Each startup phase is a trace section, see "MainActivity.*"
+ * in a systrace.
  */
 
 package com.example.restaurantspendingtracker;
 
 import android.content.Intent;
-import android.database.Cursor;
+import android.content.SharedPreferences;
+import android.os.Build;
 import android.os.Bundle;
+import android.preference.PreferenceManager;
 import android.view.View;
 import android.widget.Button;
 import android.widget.TextView;
 
 import androidx.appcompat.app.AppCompatActivity;
-
-import java.util.Locale;
+import androidx.core.os.TraceCompat;
 
 // TODO do something about app name not showing entirely in ViewHistory
 //      activity after adding a bill (?, not sure about this)
@@ -28,11 +37,50 @@ import java.util.Locale;
 
 public class MainActivity extends AppCompatActivity {
 
+   // preference holding the last leftover amount of money (in cents) read
+   // from the database, shown until the current one is read
+   private static final String LAST_LEFTOVER_CENTS = "lastLeftoverCents";
+
+   private SharedPreferences mPreferences;
+   private TextView tvLeftoverMoney;
+
+   // leftover amount of money (in cents) currently displayed, so an
+   // unchanged total isn't formatted again on every resume
+   private long displayedLeftoverCents = Money.INVALID;
+
+   // whether reportFullyDrawn() was called, which is only done once
+   private boolean reportedFullyDrawn;
+
    @Override
    protected void onCreate(Bundle savedInstanceState) {
-      super.onCreate(savedInstanceState);
-      setContentView(R.layout.activity_main);
+      TraceCompat.beginSection("MainActivity.onCreate");
+      try {
+         super.onCreate(savedInstanceState);
+         TraceCompat.beginSection("MainActivity.setContentView");
+         try {
+            setContentView(R.layout.activity_main);
+         } finally {
+            TraceCompat.endSection();
+         }
+         setUpButtons();
+
+         TraceCompat.beginSection("MainActivity.showLastTotal");
+         try {
+            tvLeftoverMoney = findViewById(R.id.tvLeftoverMoney);
+            mPreferences = PreferenceManager.getDefaultSharedPreferences(this);
+            if (mPreferences.contains(LAST_LEFTOVER_CENTS)) {
+               showLeftoverCents(mPreferences.getLong(LAST_LEFTOVER_CENTS, 0));
+            }
+         } finally {
+            TraceCompat.endSection();
+         }
+      } finally {
+         TraceCompat.endSection();
+      }
+   }
 
+   // post: makes the buttons start the AddBill and ViewHistory activities
+   private void setUpButtons() {
       Button btAddBill = findViewById(R.id.btAddBill);
       Button btViewHistory = findViewById(R.id.btViewHistory);
 
@@ -53,30 +101,56 @@ public class MainActivity extends AppCompatActivity {
                                      ViewHistoryActivity.class));
          }
       });
-
    }
 
    // refreshes to make sure the leftover amount of money is up-to-date when
    // clicking back to the MainActivity
    public void onResume() {
-      super.onResume();
-
-      TextView tvLeftoverMoney = findViewById(R.id.tvLeftoverMoney);
-      DatabaseHelper billDB = new DatabaseHelper(this);
-      Cursor leftoverMoneyCursor = billDB.getAllLeftoverMoney();
-
-      double leftoverMoney = 0; // leftoverMoney = moneyAllowed - moneyPaid
-      if(leftoverMoneyCursor.moveToFirst()) {
-         do {
-            leftoverMoney += leftoverMoneyCursor.getDouble(0);
-         } while (leftoverMoneyCursor.moveToNext());
+      TraceCompat.beginSection("MainActivity.onResume");
+      try {
+         super.onResume();
+
+         // leftoverCents = moneyAllowed - moneyPaid (in cents), read in the
+         // background
+         BillRepository.getInstance(this).getTotalLeftoverCents
+                 (new BillRepository.Callback<Long>() {
+            @Override
+            public void onResult(Long leftoverCents) {
+               TraceCompat.beginSection("MainActivity.showCurrentTotal");
+               try {
+                  if (leftoverCents != displayedLeftoverCents) {
+                     showLeftoverCents(leftoverCents);
+                     mPreferences.edit()
+                                 .putLong(LAST_LEFTOVER_CENTS, leftoverCents)
+                                 .apply();
+                  }
+                  reportFullyDrawnOnce();
+               } finally {
+                  TraceCompat.endSection();
+               }
+            }
+         });
+      } finally {
+         TraceCompat.endSection();
       }
+   }
 
-      String leftoverMoneyDisplay = String.format(Locale.US, "%.2f",
-                                                  leftoverMoney);
-
+   // post: displays the given leftover amount of money (in cents)
+   private void showLeftoverCents(long leftoverCents) {
+      displayedLeftoverCents = leftoverCents;
       tvLeftoverMoney.setText(getString(R.string.leftover_money,
-                                        leftoverMoneyDisplay));
+                                        Money.format(leftoverCents)));
+   }
+
+   // post: tells the system the activity is fully drawn, the first time
+   //       only; skipped before Android 4.4W, where reportFullyDrawn()
+   //       needs a system permission
+   private void reportFullyDrawnOnce() {
+      if (!reportedFullyDrawn
+              && Build.VERSION.SDK_INT > Build.VERSION_CODES.KITKAT) {
+         reportFullyDrawn();
+      }
+      reportedFullyDrawn = true;
    }
 
 }
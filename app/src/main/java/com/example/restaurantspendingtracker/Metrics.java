@@ -0,0 +1,197 @@
+/*
+ * Class used for measuring the hot paths of the app on real bill histories:
+ * database calls, searching the bill history, deleting bills by date and
+ * binding rows.
+ *
+ * Each operation keeps a count of its calls, the number of rows (bills) they
+ * handled, and a histogram of their latencies, from which percentiles are
+ * estimated. A call is measured with:
+ *
+ *    long start = Metrics.start();
+ *    ...
+ *    Metrics.stop(Metrics.SOME_OPERATION, start, rowCount);
+ *
+ * Recording is on in debug builds and can be switched on and off from the
+ * MetricsActivity. While it is off, start() and stop() only read a flag, so
+ * the measured paths cost the same as without them. The histograms are
+ * arrays of atomic counters, so any thread can record without locking.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class Metrics {
+
+   public static final int DB_INSERT = 0;
+   public static final int DB_LOAD_PAGE = 1;
+   public static final int DB_SEARCH = 2;
+   public static final int DB_TOTAL = 3;
+   public static final int DB_DELETE = 4;
+   public static final int FILTER_NARROW = 5;
+   public static final int FILTER_SHOW = 6;
+   public static final int DELETE_MATCHING_DATES = 7;
+   public static final int BIND = 8;
+
+   // names of the operations, in the order of their constants
+   private static final String[] OPERATION_NAMES = {
+           "db.insert", "db.loadPage", "db.search", "db.total", "db.delete",
+           "filter.narrow", "filter.show", "history.deleteMatchingDates",
+           "adapter.bind"
+   };
+   public static final int OPERATION_COUNT = OPERATION_NAMES.length;
+
+   // returned by start() while recording is off
+   private static final long NOT_RECORDED = Long.MIN_VALUE;
+
+   // latencies (in microseconds) below this get a bucket each; from there
+   // on, every power of two is split into SUB_BUCKETS buckets, so estimates
+   // are within 25% of the actual latency
+   private static final int SUB_BUCKETS = 4;
+   private static final int BUCKET_COUNT = SUB_BUCKETS * 40;
+
+   // per operation: its calls, rows and total latency (in microseconds)
+   private static final int CALLS = 0;
+   private static final int ROWS = 1;
+   private static final int TOTAL_MICROS = 2;
+   private static final int TOTALS_PER_OPERATION = 3;
+
+   private static final AtomicLongArray totals =
+           new AtomicLongArray(OPERATION_COUNT * TOTALS_PER_OPERATION);
+   private static final AtomicLongArray buckets =
+           new AtomicLongArray(OPERATION_COUNT * BUCKET_COUNT);
+
+   private static volatile boolean recording = BuildConfig.DEBUG;
+
+   private Metrics() {
+   }
+
+   // post: returns true if calls are being recorded, returns false otherwise
+   public static boolean isRecording() {
+      return recording;
+   }
+
+   // post: starts or stops recording calls
+   public static void setRecording(boolean recording) {
+      Metrics.recording = recording;
+   }
+
+   // post: returns the start time to pass to stop() at the end of the call
+   //       being measured
+   public static long start() {
+      return recording ? System.nanoTime() : NOT_RECORDED;
+   }
+
+   // pre:  'startNanos' was returned by start() at the start of the call
+   // post: records a call of the given operation that handled the given
+   //       number of rows, unless recording was off when it started
+   public static void stop(int operation, long startNanos, int rowCount) {
+      if (startNanos == NOT_RECORDED) {
+         return;
+      }
+      long micros = (System.nanoTime() - startNanos) / 1000;
+      int totalsStart = operation * TOTALS_PER_OPERATION;
+      totals.incrementAndGet(totalsStart + CALLS);
+      totals.addAndGet(totalsStart + ROWS, rowCount);
+      totals.addAndGet(totalsStart + TOTAL_MICROS, micros);
+      buckets.incrementAndGet(operation * BUCKET_COUNT + bucketOf(micros));
+   }
+
+   // post: forgets every call recorded so far
+   public static void reset() {
+      for (int i = 0; i < totals.length(); i++) {
+         totals.set(i, 0);
+      }
+      for (int i = 0; i < buckets.length(); i++) {
+         buckets.set(i, 0);
+      }
+   }
+
+   // pre:  0 <= operation < OPERATION_COUNT
+   // post: returns the name of the given operation
+   public static String getName(int operation) {
+      return OPERATION_NAMES[operation];
+   }
+
+   // pre:  0 <= operation < OPERATION_COUNT
+   // post: returns the number of calls of the given operation recorded
+   public static long getCallCount(int operation) {
+      return totals.get(operation * TOTALS_PER_OPERATION + CALLS);
+   }
+
+   // pre:  0 <= operation < OPERATION_COUNT, 0 < percentile <= 100
+   // post: returns an estimate of the given percentile of the latencies (in
+   //       microseconds) of the recorded calls of the given operation (the
+   //       upper bound of the bucket it falls in), or 0 if there are none
+   public static long getPercentileMicros(int operation, double percentile) {
+      long callCount = 0;
+      int bucketsStart = operation * BUCKET_COUNT;
+      long[] counts = new long[BUCKET_COUNT]; // read once, for a consistent
+                                              // estimate
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         counts[i] = buckets.get(bucketsStart + i);
+         callCount += counts[i];
+      }
+      long rank = (long) Math.ceil(callCount * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+         seen += counts[i];
+         if (seen >= rank && seen > 0) {
+            return lowerBoundOf(i + 1);
+         }
+      }
+      return 0;
+   }
+
+   // post: appends one line per operation with its calls, rows, mean, p50
+   //       and p99 latencies to the given StringBuilder
+   public static void appendReport(StringBuilder report) {
+      for (int operation = 0; operation < OPERATION_COUNT; operation++) {
+         int totalsStart = operation * TOTALS_PER_OPERATION;
+         long callCount = totals.get(totalsStart + CALLS);
+         long meanMicros = (callCount == 0)
+                           ? 0 : totals.get(totalsStart + TOTAL_MICROS)
+                                 / callCount;
+         report.append(String.format
+                 (Locale.US, "%-28s %7d calls %9d rows  mean %s  p50 %s  " +
+                  "p99 %s%n", OPERATION_NAMES[operation], callCount,
+                  totals.get(totalsStart + ROWS), formatMicros(meanMicros),
+                  formatMicros(getPercentileMicros(operation, 50)),
+                  formatMicros(getPercentileMicros(operation, 99))));
+      }
+   }
+
+   // post: returns the given latency in microseconds or, from a millisecond
+   //       on, in milliseconds
+   public static String formatMicros(long micros) {
+      if (micros < 1000) {
+         return micros + " us";
+      }
+      return String.format(Locale.US, "%.1f ms", micros / 1000.0);
+   }
+
+   // pre:  'micros' >= 0
+   // post: returns the index of the histogram bucket of the given latency
+   private static int bucketOf(long micros) {
+      if (micros < SUB_BUCKETS) {
+         return (int) micros;
+      }
+      int exponent = 63 - Long.numberOfLeadingZeros(micros); // >= 2
+      int subBucket = (int) (micros >> (exponent - 2)) & (SUB_BUCKETS - 1);
+      return Math.min(SUB_BUCKETS * (exponent - 1) + subBucket,
+                      BUCKET_COUNT - 1);
+   }
+
+   // pre:  0 <= bucket <= BUCKET_COUNT
+   // post: returns the smallest latency (in microseconds) of the given
+   //       histogram bucket
+   private static long lowerBoundOf(int bucket) {
+      if (bucket < SUB_BUCKETS) {
+         return bucket;
+      }
+      int exponent = bucket / SUB_BUCKETS + 1;
+      return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - 2);
+   }
+
+}
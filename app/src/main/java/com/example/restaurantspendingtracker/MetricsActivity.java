@@ -0,0 +1,132 @@
+/*
+ * Debug screen showing the calls, rows and latencies recorded by Metrics for
+ * each operation (see Metrics class header), reached from the ViewHistory
+ * activity's menu in debug builds.
+ *
+ * Recording can be switched on and off, the recorded calls reset, and the
+ * report exported to logcat and to METRICS_FILE_NAME in the app's external
+ * files directory (or its internal one if there is no external storage).
+ */
+
+package com.example.restaurantspendingtracker;
+
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.View;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.CompoundButton;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+public class MetricsActivity extends AppCompatActivity {
+
+   private static final String TAG = "Metrics";
+   private static final String METRICS_FILE_NAME = "metrics.txt";
+
+   private TextView tvMetricsReport;
+
+   @Override
+   protected void onCreate(Bundle savedInstanceState) {
+      super.onCreate(savedInstanceState);
+      setContentView(R.layout.activity_metrics);
+
+      tvMetricsReport = findViewById(R.id.tvMetricsReport);
+      CheckBox cbRecordMetrics = findViewById(R.id.cbRecordMetrics);
+      Button btExportMetrics = findViewById(R.id.btExportMetrics);
+      Button btResetMetrics = findViewById(R.id.btResetMetrics);
+
+      cbRecordMetrics.setChecked(Metrics.isRecording());
+      cbRecordMetrics.setOnCheckedChangeListener
+              (new CompoundButton.OnCheckedChangeListener() {
+         // post: starts or stops recording calls
+         @Override
+         public void onCheckedChanged(CompoundButton buttonView,
+                                      boolean isChecked) {
+            Metrics.setRecording(isChecked);
+         }
+      });
+
+      btExportMetrics.setOnClickListener(new View.OnClickListener() {
+         // post: shows the current report and exports it
+         @Override
+         public void onClick(View view) {
+            exportReport(showReport());
+         }
+      });
+
+      btResetMetrics.setOnClickListener(new View.OnClickListener() {
+         // post: forgets every recorded call
+         @Override
+         public void onClick(View view) {
+            Metrics.reset();
+            showReport();
+         }
+      });
+   }
+
+   // refreshes the report every time the screen comes back into view
+   @Override
+   protected void onResume() {
+      super.onResume();
+      showReport();
+   }
+
+   // post: shows the current report and returns it
+   private String showReport() {
+      StringBuilder report = new StringBuilder();
+      Metrics.appendReport(report);
+      String reportText = report.toString();
+      tvMetricsReport.setText(reportText);
+      return reportText;
+   }
+
+   // post: logs each line of the given report, then writes it to
+   //       METRICS_FILE_NAME in the background and tells the user where it
+   //       went (or why it couldn't be written)
+   private void exportReport(final String report) {
+      for (String line : report.split("\n")) {
+         Log.i(TAG, line);
+      }
+      AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+         @Override
+         public void run() {
+            File directory = getExternalFilesDir(null);
+            if (directory == null) {
+               directory = getFilesDir();
+            }
+            File file = new File(directory, METRICS_FILE_NAME);
+            String message;
+            try {
+               Writer writer = new FileWriter(file);
+               try {
+                  writer.write(report);
+               } finally {
+                  writer.close();
+               }
+               message = getString(R.string.exported_metrics, file.getPath());
+            } catch (IOException e) {
+               message = getString(R.string.transfer_failed,
+                                   METRICS_FILE_NAME, e.getMessage());
+            }
+            final String finalMessage = message;
+            runOnUiThread(new Runnable() {
+               @Override
+               public void run() {
+                  Toast.makeText(MetricsActivity.this, finalMessage,
+                                 Toast.LENGTH_LONG).show();
+               }
+            });
+         }
+      });
+   }
+
+}
@@ -0,0 +1,87 @@
+/*
+ * Class used for converting amounts of money between the decimal text typed
+ * by and shown to the user (e.g. "12.05") and the whole number of cents
+ * (1205) they are handled and stored as.
+ *
+ * Cents are kept in a long so sums of any number of bills are exact. The
+ * conversions read and write characters directly, so validating what the
+ * user typed or formatting a total doesn't create any short-lived Strings.
+ */
+
+package com.example.restaurantspendingtracker;
+
+public final class Money {
+
+   // returned by the parsing methods when the given amount isn't valid
+   public static final long INVALID = Long.MIN_VALUE;
+
+   // most digits accepted before the decimal point, so that the amount in
+   // cents always fits in a long
+   private static final int MAX_WHOLE_DIGITS = 15;
+
+   private Money() {
+   }
+
+   // post: returns the amount (in cents) of the given text if it is a
+   //       non-negative amount with at most two decimals (e.g. "12", "12.5",
+   //       ".5" or "12."), returns INVALID otherwise
+   public static long parseCents(CharSequence amount) {
+      return parseCents(amount, 0, amount.length());
+   }
+
+   // post: same as parseCents(CharSequence), but only looks at the
+   //       characters of the given amount between 'start' (inclusive) and
+   //       'end' (exclusive)
+   public static long parseCents(CharSequence amount, int start, int end) {
+      long cents = 0;
+      int wholeDigits = 0;
+      int decimals = -1; // digits after the point; -1 until a point is seen
+      for (int i = start; i < end; i++) {
+         char c = amount.charAt(i);
+         if (c == '.' && decimals == -1) {
+            decimals = 0;
+         } else if (c >= '0' && c <= '9') {
+            if (decimals == -1) {
+               wholeDigits++;
+            } else {
+               decimals++;
+            }
+            cents = cents * 10 + (c - '0');
+         } else {
+            return INVALID;
+         }
+      }
+      if (wholeDigits > MAX_WHOLE_DIGITS || decimals > 2
+              || wholeDigits + Math.max(decimals, 0) == 0) {
+         return INVALID;
+      }
+      for (int i = Math.max(decimals, 0); i < 2; i++) {
+         cents *= 10;
+      }
+      return cents;
+   }
+
+   // pre:  'cents' > Long.MIN_VALUE
+   // post: returns the given amount (in cents) with two decimals (e.g.
+   //       "12.05" for 1205 and "-0.50" for -50)
+   public static String format(long cents) {
+      StringBuilder formatted = new StringBuilder(24);
+      appendFormatted(formatted, cents);
+      return formatted.toString();
+   }
+
+   // pre:  'cents' > Long.MIN_VALUE
+   // post: appends the given amount (in cents) with two decimals to the given
+   //       StringBuilder
+   public static void appendFormatted(StringBuilder builder, long cents) {
+      if (cents < 0) {
+         builder.append('-');
+         cents = -cents;
+      }
+      long remainder = cents % 100;
+      builder.append(cents / 100).append('.')
+             .append((char) ('0' + remainder / 10))
+             .append((char) ('0' + remainder % 10));
+   }
+
+}
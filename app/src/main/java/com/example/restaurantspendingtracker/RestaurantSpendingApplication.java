@@ -0,0 +1,35 @@
+/*
+ * The application.
+ *
+ * Every database call goes through the BillRepository, which keeps disk I/O
+ * off the UI thread. Debug builds enforce this with StrictMode: any disk read
+ * or write done on the UI thread is logged, and so is any database object
+ * that is leaked.
+ */
+
+package com.example.restaurantspendingtracker;
+
+import android.app.Application;
+import android.os.StrictMode;
+
+public class RestaurantSpendingApplication extends Application {
+
+   // post: enables StrictMode's disk and leak checks in debug builds
+   @Override
+   public void onCreate() {
+      super.onCreate();
+      if (BuildConfig.DEBUG) {
+         StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                                            .detectDiskReads()
+                                            .detectDiskWrites()
+                                            .penaltyLog()
+                                            .build());
+         StrictMode.setVmPolicy(new StrictMode.VmPolicy.Builder()
+                                        .detectLeakedSqlLiteObjects()
+                                        .detectLeakedClosableObjects()
+                                        .penaltyLog()
+                                        .build());
+      }
+   }
+
+}
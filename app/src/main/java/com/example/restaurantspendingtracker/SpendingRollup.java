@@ -0,0 +1,72 @@
+/*
+ * Class used for reporting the totals of the bills paid in one period (a
+ * day, a month or a year), as kept by the database's rollup table (see
+ * DatabaseHelper.getRollup()).
+ *
+ * Periods are identified by a key in the yyyyMMdd form of BillDates.toCivil():
+ * a day by its own date (20190915), a month with a day of 00 (20190900) and a
+ * year with a month and day of 0000 (20190000), so every period has its own
+ * key and a key can be read at a glance.
+ */
+
+package com.example.restaurantspendingtracker;
+
+public final class SpendingRollup {
+
+   private final int period;
+   private final int billCount;
+   private final long amountPaid; // in cents
+   private final long moneyAllowed; // in cents
+
+   // post: constructs the totals of the 'billCount' bills of the given
+   //       period, with the given amounts (in cents)
+   public SpendingRollup(int period, int billCount, long amountPaid,
+                         long moneyAllowed) {
+      this.period = period;
+      this.billCount = billCount;
+      this.amountPaid = amountPaid;
+      this.moneyAllowed = moneyAllowed;
+   }
+
+   // post: returns the key of the given epoch day's period
+   public static int dayKey(int epochDay) {
+      return BillDates.toCivil(epochDay);
+   }
+
+   // pre:  the given month is between 1 and 12
+   // post: returns the key of the given month's period
+   public static int monthKey(int year, int month) {
+      return year * 10000 + month * 100;
+   }
+
+   // post: returns the key of the given year's period
+   public static int yearKey(int year) {
+      return year * 10000;
+   }
+
+   // post: returns the key of the period of these totals
+   public int getPeriod() {
+      return period;
+   }
+
+   // post: returns the number of bills paid in the period
+   public int getBillCount() {
+      return billCount;
+   }
+
+   // post: returns the sum of the amounts paid (in cents) in the period
+   public long getAmountPaid() {
+      return amountPaid;
+   }
+
+   // post: returns the sum of the money allowed (in cents) in the period
+   public long getMoneyAllowed() {
+      return moneyAllowed;
+   }
+
+   // post: returns the leftover money (in cents) of the period
+   public long getLeftoverCents() {
+      return moneyAllowed - amountPaid;
+   }
+
+}
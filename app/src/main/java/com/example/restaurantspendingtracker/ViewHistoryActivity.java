@@ -1,19 +1,29 @@
 /*
  * The activity used to view (and search within) the bill history, add bills to
  * the database, and remove bills from the bill history.
+ *
+ * Swiped bills are only removed from view at first: they are kept in
+ * 'pendingDeletes' while a snackbar offers to undo the deletion, and are
+ * deleted from the database together, in one transaction, once no bill has
+ * been swiped for FLUSH_DELAY_MILLIS or the activity is paused.
  */
 
 package com.example.restaurantspendingtracker;
 
-import android.database.Cursor;
+import android.content.DialogInterface;
+import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
+import android.view.View;
 import android.view.inputmethod.EditorInfo;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.SearchView;
 import androidx.appcompat.widget.Toolbar;
@@ -22,8 +32,7 @@ import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.google.android.material.snackbar.Snackbar;
 
 // TODO make it so that we can edit entries (?)
 // TODO make it so that we can move entries (?)
@@ -34,8 +43,9 @@ import java.util.List;
 public class ViewHistoryActivity extends AppCompatActivity
         implements HistoryDeleteDialog.HistoryDeleteDialogListener {
 
-   private DatabaseHelper billDB; // database containing the bills and the
-                                  // leftover amount of money from each bill
+   private BillRepository billRepository; // database containing the bills
+                                          // and the leftover amount of money
+                                          // from each bill
 
    private HistoryRVAdapter mHistoryRVAdapter;
 
@@ -43,8 +53,55 @@ public class ViewHistoryActivity extends AppCompatActivity
                                     // empty; remains hidden when history is
                                     // not empty
 
-   private List<Integer> allIDs;
-   private List<String> allBills;
+   private BillStore billStore; // the loaded bills, shared with the RV
+                                // adapter
+
+   // number of bills fetched from the database at a time; pages are fetched
+   // newest first as the user scrolls towards the end of the loaded bills
+   private static final int PAGE_SIZE = 50;
+
+   // how close (in bills) to the end of the loaded bills the user can scroll
+   // before the next page is fetched
+   private static final int PREFETCH_DISTANCE = 15;
+
+   private RecyclerView rvHistory;
+   private LinearLayoutManager mLinearLayoutManager;
+   private boolean historyIsFullyLoaded; // true once the oldest bill is loaded
+   private boolean pageIsLoading; // true while bills are being fetched
+
+   // text searched for while the bills not loaded yet were being fetched;
+   // searched once they are all loaded, null when no search is waiting
+   private String pendingSearchText;
+
+   // incremented whenever the loaded bills are thrown away (e.g. after an
+   // import), so pages requested before that are ignored
+   private int historyGeneration;
+
+   // names of the CSV file bills are exported to and imported from, and of
+   // the backup file, in the app's external files directory
+   private static final String CSV_FILE_NAME = "bills.csv";
+   private static final String BACKUP_FILE_NAME = "bills.backup";
+
+   // true during a CSV import or export, backup or restore
+   private boolean transferIsRunning;
+   private MenuItem searchItem;
+
+   // how long (in milliseconds) after the last swipe the swiped bills can
+   // still be brought back before they are deleted from the database
+   private static final int FLUSH_DELAY_MILLIS = 4000;
+
+   // bills swiped away but not deleted from the database yet
+   private final BillStore pendingDeletes = new BillStore();
+
+   private final Handler flushHandler = new Handler();
+   private final Runnable flushPendingDeletes = new Runnable() {
+      @Override
+      public void run() {
+         flushPendingDeletes();
+      }
+   };
+   private Snackbar undoSnackbar; // offers to undo the pending deletes; null
+                                  // when there are none
 
    @Override
    protected void onCreate(Bundle savedInstanceState) {
@@ -54,15 +111,31 @@ public class ViewHistoryActivity extends AppCompatActivity
 
       tvEmptyHistory = findViewById(R.id.tvEmptyHistory);
 
-      billDB = new DatabaseHelper(this);
-      allIDs = new ArrayList<>();
-      allBills = new ArrayList<>();
+      billRepository = BillRepository.getInstance(this);
+      billStore = new BillStore(true); // indexed for deleteMatchingDates()
 
       receiveAddedBillDataAndAddToDB();
 
-      getAllIDsAndBillsFromDB();
-
       showHistory();
+      updateEmptyHistoryMessage(); // hidden until the first page arrives
+
+      loadNextPageFromDB();
+   }
+
+   // post: deletes the swiped bills from the database, so activities resumed
+   //       next (whose reads wait for earlier writes) see them deleted
+   @Override
+   protected void onPause() {
+      super.onPause();
+      flushPendingDeletes();
+   }
+
+   // post: stops the RV adapter's searches
+   @Override
+   protected void onDestroy() {
+      super.onDestroy();
+      flushHandler.removeCallbacks(flushPendingDeletes);
+      mHistoryRVAdapter.stopSearching();
    }
 
    // current menu action items: search and delete
@@ -72,7 +145,8 @@ public class ViewHistoryActivity extends AppCompatActivity
       MenuInflater mMenuInflater = getMenuInflater();
       mMenuInflater.inflate(R.menu.history_menu, menu);
 
-      MenuItem searchItem = menu.findItem(R.id.action_search);
+      menu.findItem(R.id.action_metrics).setVisible(BuildConfig.DEBUG);
+      searchItem = menu.findItem(R.id.action_search);
       final SearchView mSearchView = (SearchView) searchItem.getActionView();
 
       mSearchView.setImeOptions(EditorInfo.IME_ACTION_DONE);
@@ -85,12 +159,18 @@ public class ViewHistoryActivity extends AppCompatActivity
 
          // pre:  the bill history is not empty (if empty, the user can still
          //       enter a string but only tvEmptyHistory will be displayed)
-         // post: shows bills containing the given string (ignores case and
-         //       spaces around the string) and hides bills that don't
+         // post: shows bills whose words start with the words of the given
+         //       string (ignores case and punctuation; see BillSearchQuery)
+         //       and hides bills that don't; the search waits for the bills
+         //       not loaded yet since it covers every bill
          @Override
          public boolean onQueryTextChange(String newText) {
-            if (mHistoryRVAdapter != null) {
-               mHistoryRVAdapter.getFilter().filter(newText);
+            if (newText.trim().isEmpty() || historyIsFullyLoaded) {
+               pendingSearchText = null;
+               mHistoryRVAdapter.search(newText);
+            } else {
+               pendingSearchText = newText;
+               loadRemainingPagesFromDB();
             }
             return false;
          }
@@ -99,6 +179,13 @@ public class ViewHistoryActivity extends AppCompatActivity
    }
 
    // delete item selected (post): opens the delete dialog
+   // export item selected (post): writes the bill history to CSV_FILE_NAME
+   // import item selected (post): adds the bills of CSV_FILE_NAME to the
+   //                              bill history
+   // back up item selected (post): writes the bill history to
+   //                               BACKUP_FILE_NAME
+   // restore item selected (post): asks the user whether to replace the bill
+   //                               history with BACKUP_FILE_NAME
    @Override
    public boolean onOptionsItemSelected(@NonNull MenuItem item) {
       int itemID = item.getItemId();
@@ -106,6 +193,28 @@ public class ViewHistoryActivity extends AppCompatActivity
          HistoryDeleteDialog mHistoryDialog = new HistoryDeleteDialog();
          mHistoryDialog.show(getSupportFragmentManager(),
                              "history delete dialog");
+      } else if (itemID == R.id.action_export_csv) {
+         exportCsv();
+      } else if (itemID == R.id.action_import_csv) {
+         importCsv();
+      } else if (itemID == R.id.action_back_up) {
+         backUp();
+      } else if (itemID == R.id.action_restore) {
+         new AlertDialog.Builder(this)
+                 .setTitle(R.string.restore)
+                 .setMessage(getString(R.string.restore_warning,
+                                       BACKUP_FILE_NAME))
+                 .setNegativeButton("cancel", null)
+                 .setPositiveButton(R.string.restore,
+                                    new DialogInterface.OnClickListener() {
+                    @Override
+                    public void onClick(DialogInterface dialog, int which) {
+                       restore();
+                    }
+                 })
+                 .show();
+      } else if (itemID == R.id.action_metrics) {
+         startActivity(new Intent(this, MetricsActivity.class));
       }
       return super.onOptionsItemSelected(item);
    }
@@ -119,231 +228,464 @@ public class ViewHistoryActivity extends AppCompatActivity
          return false;
       }
 
-      // post: permanently deletes the bill that is swiped left from the
-      //       history, removing the deleted bill from view and moving up the
-      //       bills below it if there are any; if the resulting history is
-      //       empty, tvEmptyHistory is displayed
+      // post: removes the bill that is swiped left from view, moving up the
+      //       bills below it if there are any, and offers to undo the
+      //       deletion until it is made in the database (see class header);
+      //       if the resulting history is empty, tvEmptyHistory is displayed
       @Override
       public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder,
                            int direction) {
          int positionInRV = viewHolder.getAdapterPosition();
-         int ID = mHistoryRVAdapter.getViewableIDs().get(positionInRV);
-         int indexInAll = allIDs.indexOf(ID);
-         deleteBillFromSQLandRV(indexInAll);
-
-         if (allBills.isEmpty()) {
-            tvEmptyHistory.setText(R.string.your_bill_history_is_empty);
-         }
+         deleteBillLater(mHistoryRVAdapter.getStoreIndex(positionInRV));
+         loadNextPageIfNearEnd();
+         updateEmptyHistoryMessage();
       }
    };
 
-   // pre:  the given string corresponds to a valid date of the format
-   //       "MM/dd/yyyy"; 'MM' and 'dd' may be "XX", 'yyyy' may be "XXXX"
    // post: deletes all bills in the bill history with dates that match the
-   //       given date, returning true if at least one bill was deleted and
-   //       false otherwise; when 'MM' is "XX", it corresponds to all months;
+   //       given pattern, then calls 'onFinished' with true if no bills were
+   //       deleted and false otherwise; when 'MM' is "XX", it corresponds to
+   //       all months;
    //       when 'dd' is "XX", it corresponds ot all days of the month; when
    //       'yyyy' is "XXXX", it corresponds to all years; (e.g. "09/XX/2019"
    //       deletes all bills of September 2019, "XX/XX/2019" deletes all bills
-   //       of 2019, "XX/XX/XXXX" deletes all bills, etc.)
+   //       of 2019, "XX/XX/XXXX" deletes all bills, etc.); the bills are
+   //       deleted from the database in one background transaction and
+   //       then looked up in the loaded bills' date index, and only those
+   //       bills are removed from the loaded bills and from view
    @Override
-   public boolean deleteMatchingDates(String date) {
-      int initialSize = allBills.size();
-
-      String[] componentsOfPassedDate = date.split("/");
-      String passedYear = componentsOfPassedDate[2];
-      String passedMonth = componentsOfPassedDate[0];
-      String passedDay = componentsOfPassedDate[1];
-
-      if (passedMonth.equals("XX") && passedDay.equals("XX")
-              && passedYear.equals("XXXX")) { // "XX/XX/XXXX"
-
-         for (int i = allBills.size() - 1; i >= 0; i--) {
-            deleteBillFromSQLandRV(i);
-         }
-
-      } else if (passedMonth.equals("XX")
-              && passedDay.equals("XX")) { // "XX/XX/[NNNN]"
-
-         for (int i = allBills.size() - 1; i >= 0; i--) {
-            if (passedYear.equals
-                    (getComponentsOfDisplayDate(allBills.get(i))[2])) {
-               deleteBillFromSQLandRV(i);
+   public void deleteMatchingDates
+           (final DatePattern pattern,
+            final BillRepository.Callback<Boolean> onFinished) {
+      flushPendingDeletes(); // their undo would bring back deleted dates
+      billRepository.removeBillsMatching
+              (pattern, new BillRepository.Callback<Integer>() {
+         @Override
+         public void onResult(Integer deletedCount) {
+            if (deletedCount > 0) {
+               CompactionWorker.schedule(ViewHistoryActivity.this);
+               long start = Metrics.start();
+               int[] matchingIndices =
+                       billStore.indicesOfDatesMatching(pattern);
+               mHistoryRVAdapter.removeBills(matchingIndices);
+               Metrics.stop(Metrics.DELETE_MATCHING_DATES, start,
+                            matchingIndices.length);
+               loadNextPageIfNearEnd();
+               updateEmptyHistoryMessage();
             }
+            onFinished.onResult(deletedCount == 0);
          }
 
-      } else if (passedMonth.equals("XX")
-              && passedYear.equals("XXXX")) { // "XX/[NN]/XXXX"
+         @Override
+         public void onError(RuntimeException failure) {
+            onFinished.onError(failure);
+         }
+      });
+   }
 
-         for (int i = allBills.size() - 1; i >= 0; i--) {
-            if (passedDay.equals
-                    (getComponentsOfDisplayDate(allBills.get(i))[1])) {
+   // post: returns true if the bill history is known to be empty, returns
+   //       false otherwise
+   @Override
+   public boolean historyIsEmpty() {
+      return billStore.isEmpty() && historyIsFullyLoaded;
+   }
 
-               deleteBillFromSQLandRV(i);
-            }
+   // pre:  a bill was just "added" (see AddBillActivity class header) via the
+   //       AddBill activity
+   // post: adds the bill in the format:
+   //       "([MM]/[dd]/[yyyy]) Spent: [amount paid]; Allowed: [money allowed]"
+   //       to the database along with its date paid, amount paid and money
+   //       allowed
+   private void receiveAddedBillDataAndAddToDB() {
+      Bundle receivedBillData = getIntent().getExtras();
+      if (receivedBillData != null) {
+         if (getSupportActionBar() != null) {
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
          }
+         int datePaid = receivedBillData.getInt("datePaid");
+         long amountPaid = receivedBillData.getLong("amountPaid");
+         long moneyAllowed = receivedBillData.getLong("moneyAllowed");
 
-      } else if (passedMonth.equals("XX")) { // "XX/[NN]/[NNNN]"
+         billRepository.addBill(datePaid, amountPaid, moneyAllowed, null);
+      }
+   }
 
-         for (int i = allBills.size() - 1; i >= 0; i--) {
-            String[] billDateComponents =
-                    getComponentsOfDisplayDate(allBills.get(i));
+   // post: starts retrieving the next page (at most PAGE_SIZE bills older
+   //       than the ones already loaded) of bills from the database with a
+   //       single background query; does nothing if every bill is already
+   //       loaded or a page is already being retrieved
+   private void loadNextPageFromDB() {
+      loadBillsFromDB(PAGE_SIZE);
+   }
 
-            if (passedDay.equals(billDateComponents[1])
-                    && passedYear.equals(billDateComponents[2])) {
+   // post: starts retrieving every bill not loaded yet from the database with
+   //       a single background query, or right after the page being
+   //       retrieved (if any) arrives
+   private void loadRemainingPagesFromDB() {
+      loadBillsFromDB(BillRepository.NO_LIMIT);
+   }
 
-               deleteBillFromSQLandRV(i);
+   // post: starts retrieving at most 'limit' (or every, if 'limit' is
+   //       BillRepository.NO_LIMIT) bills older than the ones already loaded,
+   //       which are then appended to 'billStore' and shown in the RV adapter
+   private void loadBillsFromDB(final int limit) {
+      if (historyIsFullyLoaded || pageIsLoading) {
+         return;
+      }
+      pageIsLoading = true;
+      final int generation = historyGeneration;
+      int beforeID = Integer.MAX_VALUE;
+      if (!billStore.isEmpty()) {
+         beforeID = billStore.getID(billStore.size() - 1);
+      }
+      if (!pendingDeletes.isEmpty()) {
+         // the oldest loaded bill may have been swiped away
+         beforeID = Math.min(beforeID,
+                             pendingDeletes.getID(pendingDeletes.size() - 1));
+      }
+      billRepository.loadBillsBefore
+              (beforeID, limit, new BillRepository.Callback<BillStore>() {
+         @Override
+         public void onResult(BillStore page) {
+            if (generation != historyGeneration) {
+               return; // the bills it follows were thrown away
+            }
+            pageIsLoading = false;
+            int firstNewIndex = billStore.size();
+            billStore.appendAll(page);
+            historyIsFullyLoaded = (limit == BillRepository.NO_LIMIT
+                                    || page.size() < limit);
+            mHistoryRVAdapter.onBillsAppended(firstNewIndex);
+            updateEmptyHistoryMessage();
+
+            if (pendingSearchText != null) {
+               if (historyIsFullyLoaded) {
+                  mHistoryRVAdapter.search(pendingSearchText);
+                  pendingSearchText = null;
+               } else {
+                  loadRemainingPagesFromDB();
+               }
             }
          }
 
-      } else if (passedDay.equals("XX")
-              && passedYear.equals("XXXX")) { // "[NN]/XX/XXXX"
-
-         for (int i = allBills.size() - 1; i >= 0; i--) {
-            if (passedMonth.equals
-                    (getComponentsOfDisplayDate(allBills.get(i))[0])) {
-
-               deleteBillFromSQLandRV(i);
+         @Override
+         public void onError(RuntimeException failure) {
+            if (generation == historyGeneration) {
+               pageIsLoading = false; // the next scroll tries again
             }
          }
+      });
+   }
 
-      } else if (passedDay.equals("XX")) { // "[NN]/XX/[NNNN]"
+   // post: retrieves the next page of bills from the database if the last
+   //       bill shown is within PREFETCH_DISTANCE of the end of the bills in
+   //       the RV adapter
+   private void loadNextPageIfNearEnd() {
+      if (historyIsFullyLoaded) {
+         return;
+      }
+      int lastVisiblePosition =
+              mLinearLayoutManager.findLastVisibleItemPosition();
+      if (lastVisiblePosition + PREFETCH_DISTANCE
+              >= mHistoryRVAdapter.getItemCount()) {
+         loadNextPageFromDB();
+      }
+   }
+
+   // post: displays the bills retrieved from the database (fetching more as
+   //       the user scrolls) in the following format:
+   //       "([MM]/[dd]/[yyyy]) Spent: [amount paid]; Allowed: [money allowed]"
+   //       ; if the history turns out to be empty, tvEmptyHistory is displayed
+   private void showHistory() {
+      rvHistory = findViewById(R.id.rvHistory);
+      mHistoryRVAdapter = new HistoryRVAdapter(billStore, billRepository);
 
-         for (int i = allBills.size() - 1; i >= 0; i--) {
-            String[] billDateComponents =
-                    getComponentsOfDisplayDate(allBills.get(i));
+      mLinearLayoutManager = new LinearLayoutManager(this);
+      rvHistory.setLayoutManager(mLinearLayoutManager);
 
-            if (passedMonth.equals(billDateComponents[0])
-                    && passedYear.equals(billDateComponents[2])) {
+      DividerItemDecoration mDividerItemDecoration =
+              new DividerItemDecoration(rvHistory.getContext(),
+                                        mLinearLayoutManager.getOrientation());
+      rvHistory.addItemDecoration(mDividerItemDecoration);
 
-               deleteBillFromSQLandRV(i);
+      new ItemTouchHelper(historyItemTouchHelper).
+              attachToRecyclerView(rvHistory);
+      rvHistory.setAdapter(mHistoryRVAdapter);
+
+      rvHistory.addOnScrollListener(new RecyclerView.OnScrollListener() {
+         // post: retrieves the next page of bills once the user scrolls close
+         //       to the end of the loaded bills
+         @Override
+         public void onScrolled(@NonNull RecyclerView recyclerView,
+                                int dx, int dy) {
+            if (dy > 0) {
+               loadNextPageIfNearEnd();
             }
          }
+      });
+   }
 
-      } else if (passedYear.equals("XXXX")) { // "[NN]/[NN]/XXXX"
+   // post: displays tvEmptyHistory if the bill history is known to be empty,
+   //       hides it otherwise
+   private void updateEmptyHistoryMessage() {
+      if (historyIsEmpty()) {
+         tvEmptyHistory.setText(R.string.your_bill_history_is_empty);
+      } else {
+         tvEmptyHistory.setText("");
+      }
+   }
 
-         for (int i = allBills.size() - 1; i >= 0; i--) {
-            String[] billDateComponents =
-                    getComponentsOfDisplayDate(allBills.get(i));
+   // post: throws away the loaded bills and loads the history again from the
+   //       newest bill, ending any search
+   private void reloadHistory() {
+      flushPendingDeletes();
+      historyGeneration++;
+      historyIsFullyLoaded = false;
+      pageIsLoading = false;
+      pendingSearchText = null;
+      if (searchItem != null) {
+         searchItem.collapseActionView();
+      }
+      billStore.clear();
+      mHistoryRVAdapter.onBillsCleared();
+      loadNextPageFromDB();
+   }
 
-            if (passedMonth.equals(billDateComponents[0])
-                    && passedDay.equals(billDateComponents[1])) {
+   // post: writes every bill in the history to CSV_FILE_NAME in the
+   //       background, showing the progress in the toolbar and the outcome in
+   //       a toast
+   private void exportCsv() {
+      if (!startTransfer()) {
+         return;
+      }
+      billRepository.exportCsv
+              (CSV_FILE_NAME, showProgress(R.string.exporting_bills),
+               new BillRepository.Callback<BillTransfer.Result>() {
+         @Override
+         public void onResult(BillTransfer.Result result) {
+            finishTransfer(result, R.string.exported_bills);
+         }
+
+         @Override
+         public void onError(RuntimeException failure) {
+            failTransfer(CSV_FILE_NAME, failure);
+         }
+      });
+   }
 
-               deleteBillFromSQLandRV(i);
+   // post: adds every valid bill of CSV_FILE_NAME to the history in the
+   //       background, showing the progress in the toolbar and the outcome in
+   //       a toast, then reloads the history
+   private void importCsv() {
+      if (!startTransfer()) {
+         return;
+      }
+      billRepository.importCsv
+              (CSV_FILE_NAME, showProgress(R.string.importing_bills),
+               new BillRepository.Callback<BillTransfer.Result>() {
+         @Override
+         public void onResult(BillTransfer.Result result) {
+            finishTransfer(result, R.string.imported_bills);
+            if (result.getBillCount() > 0) {
+               reloadHistory();
             }
          }
 
-      } else { // "[NN]/[NN]/[NNNN]"
+         @Override
+         public void onError(RuntimeException failure) {
+            failTransfer(CSV_FILE_NAME, failure);
+            reloadHistory(); // the transactions before it were committed
+         }
+      });
+   }
 
-         for (int i = allBills.size() - 1; i >= 0; i--) {
-            String[] billDateComponents =
-                    getComponentsOfDisplayDate(allBills.get(i));
+   // post: writes a snapshot of every bill in the history to
+   //       BACKUP_FILE_NAME in the background, showing the progress in the
+   //       toolbar and the outcome in a toast
+   private void backUp() {
+      if (!startTransfer()) {
+         return;
+      }
+      billRepository.backUp
+              (BACKUP_FILE_NAME, showProgress(R.string.backing_up_bills),
+               new BillRepository.Callback<BillTransfer.Result>() {
+         @Override
+         public void onResult(BillTransfer.Result result) {
+            finishTransfer(result, R.string.backed_up_bills);
+         }
 
-            if (passedMonth.equals(billDateComponents[0])
-                    && passedDay.equals(billDateComponents[1])
-                    && passedYear.equals(billDateComponents[2])) {
+         @Override
+         public void onError(RuntimeException failure) {
+            failTransfer(BACKUP_FILE_NAME, failure);
+         }
+      });
+   }
 
-               deleteBillFromSQLandRV(i);
+   // post: replaces the history with the bills of BACKUP_FILE_NAME in the
+   //       background, showing the progress in the toolbar and the outcome in
+   //       a toast, then reloads the history if it was replaced
+   private void restore() {
+      if (!startTransfer()) {
+         return;
+      }
+      billRepository.restore
+              (BACKUP_FILE_NAME, showProgress(R.string.restoring_bills),
+               new BillRepository.Callback<BillTransfer.Result>() {
+         @Override
+         public void onResult(BillTransfer.Result result) {
+            finishTransfer(result, R.string.restored_bills);
+            if (result.getError() == null) {
+               // a failed restore leaves the history (and its rows) as it was
+               reloadHistory();
+               CompactionWorker.schedule(ViewHistoryActivity.this);
             }
          }
 
-      }
+         @Override
+         public void onError(RuntimeException failure) {
+            failTransfer(BACKUP_FILE_NAME, failure);
+         }
+      });
+   }
 
-      if (allBills.isEmpty()) {
-         tvEmptyHistory.setText(R.string.your_bill_history_is_empty);
+   // post: marks the start of a CSV import or export, backup or restore and
+   //       returns true, first deleting the swiped bills from the database so
+   //       it doesn't see them; returns false and tells the user to wait if
+   //       one is already running
+   private boolean startTransfer() {
+      if (transferIsRunning) {
+         Toast.makeText(this, R.string.transfer_in_progress,
+                        Toast.LENGTH_SHORT).show();
+         return false;
       }
-
-      return (initialSize == allBills.size());
+      flushPendingDeletes();
+      transferIsRunning = true;
+      return true;
    }
 
-   // post: returns true if the bill history is empty, returns false otherwise
-   @Override
-   public boolean historyIsEmpty() {
-      return (allBills.isEmpty());
+   // post: returns a listener showing the number of bills it is given in the
+   //       toolbar's subtitle with the given string resource
+   private BillTransfer.ProgressListener showProgress(final int messageID) {
+      return new BillTransfer.ProgressListener() {
+         @Override
+         public void onProgress(int billCount) {
+            if (getSupportActionBar() != null) {
+               getSupportActionBar().setSubtitle
+                       (getString(messageID, billCount));
+            }
+         }
+      };
    }
 
-   // pre:  a bill was just "added" (see AddBillActivity class header) via the
-   //       AddBill activity
-   // post: adds the bill in the format:
-   //       "([MM]/[dd]/[yyyy]) Spent: [amount paid]; Allowed: [money allowed]"
-   //       to the database; also adds the difference between the money allowed
-   //       and amount paid of that bill to the database
-   private void receiveAddedBillDataAndAddToDB() {
-      Bundle receivedBillData = getIntent().getExtras();
-      if (receivedBillData != null) {
-         if (getSupportActionBar() != null) {
-            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+   // post: clears the progress shown in the toolbar and tells the user the
+   //       outcome of the given import or export, using the given string
+   //       resource when it finished
+   private void finishTransfer(BillTransfer.Result result, int messageID) {
+      endTransfer();
+      String message;
+      if (result.getError() != null) {
+         message = getString(R.string.transfer_failed,
+                             result.getFile().getPath(),
+                             result.getError().getMessage());
+      } else {
+         message = getString(messageID, result.getBillCount(),
+                             result.getFile().getPath());
+         if (result.getSkippedLineCount() > 0) {
+            message += getString(R.string.skipped_lines,
+                                 result.getSkippedLineCount(),
+                                 result.getFirstSkippedLine());
          }
-         String displayDate = receivedBillData.getString("displayDate");
-         double dblAmountPaid = receivedBillData.getDouble("dblAmountPaid");
-         double dblMoneyAllowed =
-                 receivedBillData.getDouble("dblMoneyAllowed");
-
-         String billDisplay = getString(R.string.new_display_date, displayDate,
-                                        dblAmountPaid, dblMoneyAllowed);
-
-         billDB.addBillData(billDisplay, dblMoneyAllowed - dblAmountPaid);
       }
+      Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+   }
+
+   // post: clears the progress shown in the toolbar and tells the user that
+   //       the import or export of the given file failed with the given
+   //       exception (e.g. the database being full)
+   private void failTransfer(String fileName, RuntimeException failure) {
+      endTransfer();
+      String reason = (failure.getMessage() != null)
+                      ? failure.getMessage()
+                      : failure.getClass().getSimpleName();
+      Toast.makeText(this, getString(R.string.transfer_failed, fileName,
+                                     reason),
+                     Toast.LENGTH_LONG).show();
    }
 
-   // post: retrieves all bills and their IDs from the database and adds them
-   //       to 'allBills' and 'allIDs' respectively
-   private void getAllIDsAndBillsFromDB() {
-      Cursor IDsCursor = billDB.getAllIDs();
-      Cursor billsCursor = billDB.getAllDisplayBills();
-
-      if (billsCursor.moveToFirst() && IDsCursor.moveToFirst()) {
-         do {
-            allIDs.add(0, IDsCursor.getInt(0));
-            allBills.add(0, billsCursor.getString(0));
-         } while (IDsCursor.moveToNext() && billsCursor.moveToNext());
+   // post: marks the end of a CSV import or export, backup or restore and
+   //       clears the progress shown in the toolbar
+   private void endTransfer() {
+      transferIsRunning = false;
+      if (getSupportActionBar() != null) {
+         getSupportActionBar().setSubtitle(null);
       }
    }
 
-   // post: if the history is not empty, displays the bills retrieved from the
-   //       database in the following format:
-   //       "([MM]/[dd]/[yyyy]) Spent: [amount paid]; Allowed: [money allowed]"
-   //       ; if the history is empty, tvEmptyHistory is displayed
-   private void showHistory() {
-      if (allBills.isEmpty()) {
-         tvEmptyHistory.setText(R.string.your_bill_history_is_empty);
+   // pre:  'billStore' contains a bill at the given index
+   // post: moves the bill at the given index out of view and into
+   //       'pendingDeletes', postpones the flush of the pending deletes and
+   //       shows how many there are in the undo snackbar
+   private void deleteBillLater(int storeIndex) {
+      pendingDeletes.insert(billStore.getID(storeIndex),
+                            billStore.getDatePaid(storeIndex),
+                            billStore.getAmountPaid(storeIndex),
+                            billStore.getMoneyAllowed(storeIndex));
+      mHistoryRVAdapter.removeBill(storeIndex);
+
+      flushHandler.removeCallbacks(flushPendingDeletes);
+      flushHandler.postDelayed(flushPendingDeletes, FLUSH_DELAY_MILLIS);
+
+      String message = getResources().getQuantityString
+              (R.plurals.bills_deleted, pendingDeletes.size(),
+               pendingDeletes.size());
+      if (undoSnackbar == null) {
+         undoSnackbar = Snackbar.make(rvHistory, message,
+                                      FLUSH_DELAY_MILLIS);
+         undoSnackbar.setAction(R.string.undo, new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+               undoPendingDeletes();
+            }
+         });
       } else {
-         tvEmptyHistory.setText("");
-         RecyclerView rvHistory = findViewById(R.id.rvHistory);
-         mHistoryRVAdapter = new HistoryRVAdapter(allIDs, allBills);
-
-         LinearLayoutManager mLinearLayoutManager =
-                 new LinearLayoutManager(this);
-         rvHistory.setLayoutManager(mLinearLayoutManager);
-
-         DividerItemDecoration mDividerItemDecoration =
-                 new DividerItemDecoration
-                         (rvHistory.getContext(),
-                          mLinearLayoutManager.getOrientation());
-         rvHistory.addItemDecoration(mDividerItemDecoration);
-
-         new ItemTouchHelper(historyItemTouchHelper).
-                 attachToRecyclerView(rvHistory);
-         rvHistory.setAdapter(mHistoryRVAdapter);
+         undoSnackbar.setText(message);
       }
+      undoSnackbar.show(); // restarts its timeout when already shown
    }
 
-   // pre:  the given bill starts with the display date "([MM]/[dd]/[yyyy])"
-   // post: returns an array of strings containing the month, followed by the
-   //       day, followed by the year
-   private String[] getComponentsOfDisplayDate(String displayedBill) {
-      String[] rightSideTrimmedDisplayDate = displayedBill.split("\\)");
-      String date = rightSideTrimmedDisplayDate[0].substring(1);
-      return date.split("/");
+   // post: puts every bill of 'pendingDeletes' back in the history (and in
+   //       view if it matches the search) and cancels their deletion
+   private void undoPendingDeletes() {
+      flushHandler.removeCallbacks(flushPendingDeletes);
+      undoSnackbar = null;
+      for (int i = 0; i < pendingDeletes.size(); i++) {
+         mHistoryRVAdapter.insertBill(pendingDeletes.getID(i),
+                                      pendingDeletes.getDatePaid(i),
+                                      pendingDeletes.getAmountPaid(i),
+                                      pendingDeletes.getMoneyAllowed(i));
+      }
+      pendingDeletes.clear();
+      updateEmptyHistoryMessage();
    }
 
-   // pre:  'allBills' contains a bill at the given index
-   // post: removes the bill at the given index from the bill history
-   private void deleteBillFromSQLandRV(int indexInAll) {
-      int ID = allIDs.remove(indexInAll);
-      allBills.remove(indexInAll);
-      billDB.removeBill(ID);
-      mHistoryRVAdapter.removeIDAndBill(indexInAll);
+   // post: deletes every bill of 'pendingDeletes' from the database in a
+   //       single background transaction, schedules the compaction of the
+   //       database and dismisses the undo snackbar; does nothing if no bill
+   //       is pending
+   private void flushPendingDeletes() {
+      flushHandler.removeCallbacks(flushPendingDeletes);
+      if (undoSnackbar != null) {
+         undoSnackbar.dismiss();
+         undoSnackbar = null;
+      }
+      if (pendingDeletes.isEmpty()) {
+         return;
+      }
+      BillStore deletedBills = new BillStore();
+      deletedBills.appendAll(pendingDeletes);
+      pendingDeletes.clear();
+      billRepository.removeBills(deletedBills, null);
+      CompactionWorker.schedule(this);
    }
 
 }
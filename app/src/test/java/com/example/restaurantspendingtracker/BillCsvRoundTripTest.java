@@ -0,0 +1,141 @@
+package com.example.restaurantspendingtracker;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that a CSV file exported by BillCsv imports back as the bills it
+ * was exported from, and that an import reports the lines it skipped.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BillCsvRoundTripTest {
+
+   // more than one chunk, so the import spans several transactions
+   private static final int BILL_COUNT =
+           DatabaseHelper.BULK_INSERT_CHUNK_SIZE + 500;
+
+   private Context context;
+   private DatabaseHelper billDB;
+   private File csvFile;
+
+   @Before
+   public void setUp() {
+      context = ApplicationProvider.getApplicationContext();
+      context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+      billDB = new DatabaseHelper(context);
+      csvFile = new File(context.getFilesDir(), "test.csv");
+   }
+
+   @After
+   public void tearDown() {
+      billDB.close();
+      csvFile.delete();
+   }
+
+   @Test
+   public void importInto_bringsBackTheExportedBills() {
+      billDB.addBills(new SyntheticBills(BILL_COUNT, 2019), null);
+      // the largest amounts
+      billDB.addBills(Arrays.asList(new Bill(BillDates.toEpochDay(2001, 2, 3),
+                                             999999999999999L, 0)).iterator(),
+                      null);
+      List<String> exported = rowsOf(billDB);
+      long exportedTotal = billDB.getTotalLeftoverCents();
+
+      BillTransfer.Result export = exportCsv();
+      reopenEmptyDatabase();
+      BillTransfer.Result imported =
+              BillCsv.importInto(billDB, csvFile, null);
+
+      assertNull(export.getError());
+      assertNull(imported.getError());
+      assertEquals(BILL_COUNT + 1, export.getBillCount());
+      assertEquals(BILL_COUNT + 1, imported.getBillCount());
+      assertEquals(0, imported.getSkippedLineCount());
+      assertEquals(exported, rowsOf(billDB));
+      assertEquals(exportedTotal, billDB.getTotalLeftoverCents());
+   }
+
+   @Test
+   public void importInto_reportsTheSkippedLines() throws IOException {
+      Writer writer = new OutputStreamWriter(new FileOutputStream(csvFile),
+                                             "UTF-8");
+      try {
+         writer.write(BillCsv.HEADER + "\n"
+                      + "09/01/2019,12.50,20.00\n"
+                      + "\n"
+                      + "09/31/2019,1.00,2.00\n"
+                      + "\"09/02/2019\", 3.25 ,15\n"
+                      + "09/03/2019;1.00;2.00\n");
+      } finally {
+         writer.close();
+      }
+
+      BillTransfer.Result imported =
+              BillCsv.importInto(billDB, csvFile, null);
+
+      assertNull(imported.getError());
+      assertEquals(2, imported.getBillCount());
+      assertEquals(2, imported.getSkippedLineCount());
+      assertEquals(4, imported.getFirstSkippedLine());
+      assertEquals(Arrays.asList
+              (BillDates.toEpochDay(2019, 9, 1) + ",1250,2000",
+               BillDates.toEpochDay(2019, 9, 2) + ",325,1500"),
+                   rowsOf(billDB));
+   }
+
+   // post: exports every bill in the database to 'csvFile' and returns the
+   //       outcome
+   private BillTransfer.Result exportCsv() {
+      Cursor bills = billDB.getAllBillsOldestFirst();
+      try {
+         return BillCsv.export(bills, csvFile, null);
+      } finally {
+         bills.close();
+      }
+   }
+
+   // post: replaces the database with an empty one
+   private void reopenEmptyDatabase() {
+      billDB.close();
+      context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+      billDB = new DatabaseHelper(context);
+   }
+
+   // post: returns the date paid, amount paid and money allowed of every
+   //       bill in the given database, oldest first
+   private static List<String> rowsOf(DatabaseHelper billDB) {
+      List<String> rows = new ArrayList<>();
+      Cursor bills = billDB.getAllBillsOldestFirst();
+      try {
+         while (bills.moveToNext()) {
+            rows.add(bills.getInt(0) + "," + bills.getLong(1) + ","
+                     + bills.getLong(2));
+         }
+      } finally {
+         bills.close();
+      }
+      return rows;
+   }
+
+}
@@ -0,0 +1,122 @@
+package com.example.restaurantspendingtracker;
+
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks which CSV lines BillCsv reads as bills, and that the lines it
+ * writes are read back as the same bills.
+ */
+public class BillCsvTest {
+
+   @Test
+   public void parseRow_acceptsQuotedAndSpacedFields() {
+      String expected = describe(BillDates.toEpochDay(2019, 9, 1), 1250, 2000);
+      assertEquals(expected, describe(BillCsv.parseRow
+              ("09/01/2019,12.50,20.00")));
+      assertEquals(expected, describe(BillCsv.parseRow
+              ("\"09/01/2019\",\"12.50\",\"20.00\"")));
+      assertEquals(expected, describe(BillCsv.parseRow
+              ("  09/01/2019 , 12.5 ,20  ")));
+      assertEquals(expected, describe(BillCsv.parseRow
+              (" \"9/1/2019\" ,\"12.50\" , 20.00")));
+   }
+
+   @Test
+   public void parseRow_rejectsWhatIsntABill() {
+      assertNull(BillCsv.parseRow(""));
+      assertNull(BillCsv.parseRow("09/01/2019,12.50"));
+      assertNull(BillCsv.parseRow("09/01/2019,12.50,20.00,1.00"));
+      assertNull(BillCsv.parseRow("09/31/2019,12.50,20.00"));
+      assertNull(BillCsv.parseRow("2019-09-01,12.50,20.00"));
+      assertNull(BillCsv.parseRow("09/01/2019,12.505,20.00"));
+      assertNull(BillCsv.parseRow("09/01/2019,,20.00"));
+      assertNull(BillCsv.parseRow("09/01/2019,-1,20.00"));
+      assertNull(BillCsv.parseRow("\"09/01/2019,12.50,20.00"));
+      assertNull(BillCsv.parseRow("\" 09/01/2019\",12.50,20.00"));
+      assertNull(BillCsv.parseRow(BillCsv.HEADER));
+   }
+
+   @Test
+   public void rowIterator_skipsTheHeaderAndBlankLines() {
+      BillCsv.RowIterator rows = rowsOf(BillCsv.HEADER + "\n"
+                                        + "\n"
+                                        + "09/01/2019,12.50,20.00\n"
+                                        + "   \n"
+                                        + "09/02/2019,3.25,15.00");
+
+      assertEquals("[" + describe(BillDates.toEpochDay(2019, 9, 1), 1250,
+                                  2000) + ", "
+                   + describe(BillDates.toEpochDay(2019, 9, 2), 325, 1500)
+                   + "]", describeAll(rows).toString());
+      assertEquals(0, rows.skippedLineCount);
+      assertEquals(0, rows.firstSkippedLine);
+   }
+
+   @Test
+   public void rowIterator_countsTheInvalidLines() {
+      BillCsv.RowIterator rows = rowsOf("09/01/2019,12.50,20.00\n"
+                                        + "\n"
+                                        + "not a bill\n"
+                                        + "09/02/2019,3.25,15.00\n"
+                                        + BillCsv.HEADER + "\n"
+                                        + "02/29/2019,1.00,2.00\n");
+
+      assertEquals(2, describeAll(rows).size());
+      assertEquals(3, rows.skippedLineCount);
+      assertEquals(3, rows.firstSkippedLine);
+   }
+
+   @Test
+   public void appendRow_isReadBackByParseRow() {
+      int[] datesPaid = {0, BillDates.toEpochDay(2016, 2, 29),
+                         BillDates.toEpochDay(2019, 12, 31)};
+      long[] amounts = {0, 5, 1250, 999999999999999L};
+      StringBuilder row = new StringBuilder();
+      for (int datePaid : datesPaid) {
+         for (long amount : amounts) {
+            row.setLength(0);
+            BillCsv.appendRow(row, datePaid, amount, 2000);
+            assertEquals('\n', row.charAt(row.length() - 1));
+            row.setLength(row.length() - 1);
+            assertEquals(describe(datePaid, amount, 2000),
+                         describe(BillCsv.parseRow(row.toString())));
+         }
+      }
+   }
+
+   // post: returns an iterator over the bills of the given CSV text
+   private static BillCsv.RowIterator rowsOf(String text) {
+      return new BillCsv.RowIterator(new BufferedReader
+              (new StringReader(text)));
+   }
+
+   // post: returns the descriptions of every bill left in the given rows
+   private static List<String> describeAll(BillCsv.RowIterator rows) {
+      List<String> bills = new ArrayList<>();
+      while (rows.hasNext()) {
+         bills.add(describe(rows.next()));
+      }
+      return bills;
+   }
+
+   // post: returns the date paid and amounts of the given bill, separated by
+   //       ", "
+   private static String describe(Bill bill) {
+      return describe(bill.getDatePaid(), bill.getAmountPaid(),
+                      bill.getMoneyAllowed());
+   }
+
+   private static String describe(int datePaid, long amountPaid,
+                                  long moneyAllowed) {
+      return datePaid + ", " + amountPaid + ", " + moneyAllowed;
+   }
+
+}
@@ -0,0 +1,104 @@
+package com.example.restaurantspendingtracker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the gap buffer of BillIDList keeps every ID at the position it
+ * is shown at, wherever the gap has moved to.
+ */
+public class BillIDListTest {
+
+   // more than the smallest capacity, so the list grows with a gap open
+   private static final int ID_COUNT = 40;
+
+   @Test
+   public void indexOf_findsIDsOnEitherSideOfTheGap() {
+      BillIDList IDs = listOf(ID_COUNT);
+      IDs.remove(10); // ID 30
+
+      assertEquals(0, IDs.indexOf(40));
+      assertEquals(9, IDs.indexOf(31));
+      assertEquals(10, IDs.indexOf(29));
+      assertEquals(ID_COUNT - 2, IDs.indexOf(1));
+      assertEquals(-(10 + 1), IDs.indexOf(30));
+      assertEquals(-(ID_COUNT - 1 + 1), IDs.indexOf(0));
+      assertEquals(-1, IDs.indexOf(ID_COUNT + 1));
+   }
+
+   @Test
+   public void insert_putsRemovedIDsBackAtTheirPositions() {
+      BillIDList IDs = listOf(ID_COUNT);
+      List<Integer> expected = expectedListOf(ID_COUNT);
+      int[] removedPositions = {39, 0, 20, 5, 5, 30};
+      int[] removedIDs = new int[removedPositions.length];
+      for (int i = 0; i < removedPositions.length; i++) {
+         removedIDs[i] = IDs.get(removedPositions[i]);
+         IDs.remove(removedPositions[i]);
+         expected.remove(removedPositions[i]);
+         assertIDs(expected, IDs);
+      }
+
+      for (int i = removedIDs.length - 1; i >= 0; i--) {
+         int position = IDs.insert(removedIDs[i]);
+         int expectedPosition = 0;
+         while (expectedPosition < expected.size()
+                && expected.get(expectedPosition) > removedIDs[i]) {
+            expectedPosition++;
+         }
+         expected.add(expectedPosition, removedIDs[i]);
+         assertEquals(expectedPosition, position);
+         assertIDs(expected, IDs);
+      }
+      assertIDs(expectedListOf(ID_COUNT), IDs);
+   }
+
+   @Test
+   public void append_growsPastAnOpenGap() {
+      BillIDList IDs = listOf(ID_COUNT);
+      List<Integer> expected = expectedListOf(ID_COUNT);
+      IDs.remove(20); // ID 20
+      IDs.remove(3); // ID 37, moving the gap back over IDs 36 to 21
+      expected.remove(20);
+      expected.remove(3);
+      for (int ID = 0; ID > -ID_COUNT; ID--) {
+         IDs.append(ID);
+         expected.add(ID);
+      }
+      assertIDs(expected, IDs);
+   }
+
+   // post: returns a list of the IDs 'IDCount' down to 1, with the least
+   //       room it can be constructed with
+   private static BillIDList listOf(int IDCount) {
+      BillIDList IDs = new BillIDList(0);
+      for (int ID = IDCount; ID >= 1; ID--) {
+         IDs.append(ID);
+      }
+      return IDs;
+   }
+
+   // post: returns the IDs 'IDCount' down to 1
+   private static List<Integer> expectedListOf(int IDCount) {
+      List<Integer> IDs = new ArrayList<>();
+      for (int ID = IDCount; ID >= 1; ID--) {
+         IDs.add(ID);
+      }
+      return IDs;
+   }
+
+   // post: checks that the given list holds the given IDs, in order
+   private static void assertIDs(List<Integer> expected, BillIDList IDs) {
+      int[] actual = new int[IDs.size()];
+      for (int i = 0; i < actual.length; i++) {
+         actual[i] = IDs.get(i);
+      }
+      assertEquals(expected.toString(), Arrays.toString(actual));
+   }
+
+}
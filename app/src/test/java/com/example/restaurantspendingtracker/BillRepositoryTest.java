@@ -0,0 +1,453 @@
+package com.example.restaurantspendingtracker;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteFullException;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that the BillRepository never touches the database on the main
+ * looper, delivers its results (and failures) there, and keeps calls in
+ * request order.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BillRepositoryTest {
+
+   private MainThreadCheckingHelper billDB;
+   private ExecutorService writeExecutor;
+   private ExecutorService readExecutor;
+   private BillRepository billRepository;
+
+   @Before
+   public void setUp() {
+      Context context = ApplicationProvider.getApplicationContext();
+      context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+      billDB = new MainThreadCheckingHelper(context);
+      writeExecutor = Executors.newSingleThreadExecutor();
+      readExecutor = Executors.newFixedThreadPool(2);
+      final Handler mainHandler = new Handler(Looper.getMainLooper());
+      billRepository = new BillRepository
+              (context, billDB, writeExecutor, readExecutor, new Executor() {
+         @Override
+         public void execute(Runnable command) {
+            mainHandler.post(command);
+         }
+      });
+   }
+
+   @After
+   public void tearDown() throws Exception {
+      writeExecutor.shutdown();
+      readExecutor.shutdown();
+      writeExecutor.awaitTermination(5, TimeUnit.SECONDS);
+      readExecutor.awaitTermination(5, TimeUnit.SECONDS);
+      billDB.close();
+   }
+
+   @Test
+   public void everyCall_opensTheDatabaseOffTheMainLooper() throws Exception {
+      billRepository.addBill(BillDates.toEpochDay(2019, 9, 1), 1250, 2000,
+                             null);
+      billRepository.addBill(BillDates.toEpochDay(2019, 10, 1), 500, 1000,
+                             null);
+      billRepository.loadBillsBefore(Integer.MAX_VALUE,
+                                     BillRepository.NO_LIMIT, null);
+      billRepository.findMatchingIDs(BillSearchQuery.parse("spent"), null);
+      billRepository.removeBillsMatching(DatePattern.parse("09/XX/2019"),
+                                         null);
+      billRepository.removeBill(2, null);
+      awaitCompletion(billRepository.getTotalLeftoverCents(null));
+
+      assertTrue(billDB.openCount.get() > 0);
+      assertEquals(0, billDB.mainLooperOpenCount.get());
+   }
+
+   @Test
+   public void callbacks_runOnTheMainLooperInRequestOrder() throws Exception {
+      final List<String> calls = new ArrayList<>();
+      final List<Boolean> onMainLooper = new ArrayList<>();
+      billRepository.addBill(BillDates.toEpochDay(2019, 9, 1), 1250, 2000,
+                             new BillRepository.Callback<Void>() {
+         @Override
+         public void onResult(Void result) {
+            calls.add("add");
+            onMainLooper.add(Looper.myLooper() == Looper.getMainLooper());
+         }
+      });
+      billRepository.getTotalLeftoverCents(new BillRepository.Callback<Long>() {
+         @Override
+         public void onResult(Long leftoverCents) {
+            calls.add("total " + leftoverCents);
+            onMainLooper.add(Looper.myLooper() == Looper.getMainLooper());
+         }
+      });
+      billRepository.removeBillsMatching
+              (DatePattern.parse("XX/XX/XXXX"),
+               new BillRepository.Callback<Integer>() {
+         @Override
+         public void onResult(Integer deletedCount) {
+            calls.add("delete " + deletedCount);
+            onMainLooper.add(Looper.myLooper() == Looper.getMainLooper());
+         }
+      });
+      awaitCompletion(billRepository.getTotalLeftoverCents
+              (new BillRepository.Callback<Long>() {
+         @Override
+         public void onResult(Long leftoverCents) {
+            calls.add("total " + leftoverCents);
+            onMainLooper.add(Looper.myLooper() == Looper.getMainLooper());
+         }
+      }));
+
+      assertEquals("[add, total 750, delete 1, total 0]", calls.toString());
+      assertEquals("[true, true, true, true]", onMainLooper.toString());
+   }
+
+   @Test
+   public void loadBillsBefore_returnsPagesNewestFirst() throws Exception {
+      for (int day = 1; day <= 5; day++) {
+         billRepository.addBill(BillDates.toEpochDay(2019, 9, day), day * 100,
+                                1000, null);
+      }
+      Result<BillStore> firstPage = new Result<>();
+      Result<BillStore> secondPage = new Result<>();
+      awaitCompletion(billRepository.loadBillsBefore
+              (Integer.MAX_VALUE, 3, firstPage));
+      awaitCompletion(billRepository.loadBillsBefore
+              (firstPage.value.getID(firstPage.value.size() - 1), 3,
+               secondPage));
+
+      assertArrayEquals(new int[] {5, 4, 3}, IDsOf(firstPage.value));
+      assertArrayEquals(new int[] {2, 1}, IDsOf(secondPage.value));
+      assertEquals(BillDates.toEpochDay(2019, 9, 5),
+                   firstPage.value.getDatePaid(0));
+      assertEquals(500, firstPage.value.getAmountPaid(0));
+   }
+
+   @Test
+   public void rollups_followInsertsAndDeletes() throws Exception {
+      billRepository.addBill(BillDates.toEpochDay(2019, 9, 1), 1250, 2000,
+                             null);
+      billRepository.addBill(BillDates.toEpochDay(2019, 9, 15), 500, 1000,
+                             null);
+      billRepository.addBill(BillDates.toEpochDay(2019, 10, 1), 300, 1500,
+                             null);
+      billRepository.removeBill(1, null);
+      Result<SpendingRollup> september = new Result<>();
+      Result<SpendingRollup> year = new Result<>();
+      Result<SpendingRollup> firstOfSeptember = new Result<>();
+      Result<SpendingRollup> rebuiltYear = new Result<>();
+      Future<?> septemberRead = billRepository.getRollup
+              (SpendingRollup.monthKey(2019, 9), september);
+      Future<?> yearRead = billRepository.getRollup
+              (SpendingRollup.yearKey(2019), year);
+      Future<?> dayRead = billRepository.getRollup(SpendingRollup.dayKey
+              (BillDates.toEpochDay(2019, 9, 1)), firstOfSeptember);
+      billRepository.rebuildRollups(null);
+      awaitCompletion(septemberRead, yearRead, dayRead,
+                      billRepository.getRollup(SpendingRollup.yearKey(2019),
+                                               rebuiltYear));
+
+      assertEquals(1, september.value.getBillCount());
+      assertEquals(500, september.value.getLeftoverCents());
+      assertEquals(2, year.value.getBillCount());
+      assertEquals(800, year.value.getAmountPaid());
+      assertEquals(2500, year.value.getMoneyAllowed());
+      assertEquals(0, firstOfSeptember.value.getBillCount());
+      assertEquals(year.value.getLeftoverCents(),
+                   rebuiltYear.value.getLeftoverCents());
+   }
+
+   @Test
+   public void dateRangeTotals_followAddsAndRemoves() throws Exception {
+      for (int day = 1; day <= 5; day++) {
+         billRepository.addBill(BillDates.toEpochDay(2019, 3, day), 100, 1000,
+                                null);
+      }
+      final List<DateRangeTotals> totals = new ArrayList<>();
+      BillRepository.Callback<DateRangeTotals> addTotals =
+              new BillRepository.Callback<DateRangeTotals>() {
+         @Override
+         public void onResult(DateRangeTotals rangeTotals) {
+            totals.add(rangeTotals);
+         }
+      };
+      int firstDay = BillDates.toEpochDay(2019, 3, 2);
+      int lastDay = BillDates.toEpochDay(2019, 6, 2);
+      billRepository.getDateRangeTotals(firstDay, lastDay, addTotals);
+      billRepository.removeBill(3, null);
+      billRepository.addBill(BillDates.toEpochDay(2019, 6, 2), 50, 500, null);
+      billRepository.addBill(BillDates.toEpochDay(2019, 6, 3), 50, 500, null);
+      awaitCompletion(billRepository.getDateRangeTotals(firstDay, lastDay,
+                                                        addTotals));
+
+      assertEquals(4, totals.get(0).getBillCount());
+      assertEquals(3600, totals.get(0).getLeftoverCents());
+      assertEquals(4, totals.get(1).getBillCount());
+      assertEquals(350, totals.get(1).getAmountPaid());
+      assertEquals(3500, totals.get(1).getMoneyAllowed());
+   }
+
+   @Test
+   public void removeBills_deletesEveryGivenBillAtOnce() throws Exception {
+      for (int day = 1; day <= 5; day++) {
+         billRepository.addBill(BillDates.toEpochDay(2019, 9, day), day * 100,
+                                1000, null);
+      }
+      int firstDay = BillDates.toEpochDay(2019, 9, 1);
+      int lastDay = BillDates.toEpochDay(2019, 9, 30);
+      awaitCompletion(billRepository.getDateRangeTotals(firstDay, lastDay,
+                                                        null));
+      BillStore swipedBills = new BillStore();
+      swipedBills.append(7, BillDates.toEpochDay(2019, 9, 7), 700, 1000);
+      swipedBills.append(4, BillDates.toEpochDay(2019, 9, 4), 400, 1000);
+      swipedBills.append(2, BillDates.toEpochDay(2019, 9, 2), 200, 1000);
+      Result<Integer> deletedCount = new Result<>();
+      awaitCompletion(billRepository.removeBills(swipedBills, deletedCount));
+      Result<BillStore> page = new Result<>();
+      Result<DateRangeTotals> totals = new Result<>();
+      awaitCompletion(
+              billRepository.loadBillsBefore
+                      (Integer.MAX_VALUE, BillRepository.NO_LIMIT, page),
+              billRepository.getDateRangeTotals(firstDay, lastDay, totals));
+
+      assertEquals(2, (int) deletedCount.value);
+      assertArrayEquals(new int[] {5, 3, 1}, IDsOf(page.value));
+      // the bill that wasn't in the database isn't taken off the totals,
+      // which are updated rather than rebuilt
+      assertEquals(3, totals.value.getBillCount());
+      assertEquals(900, totals.value.getAmountPaid());
+      assertEquals(1, billDB.dailyTotalsBuildCount.get());
+   }
+
+   @Test
+   public void findMatchingIDs_searchesTheDisplaysShownInTheHistory()
+           throws Exception {
+      billRepository.addBill(BillDates.toEpochDay(2019, 9, 1), 1205, 2000,
+                             null);
+      billRepository.addBill(BillDates.toEpochDay(2019, 10, 2), 50, 1000,
+                             null);
+      Result<int[]> wholeDisplay = new Result<>();
+      Result<int[]> amount = new Result<>();
+      Result<int[]> dateAndLabel = new Result<>();
+      awaitCompletion(
+              billRepository.findMatchingIDs
+                      (BillSearchQuery.parse(BillDisplays.format
+                              (BillDates.toEpochDay(2019, 9, 1), 1205, 2000)),
+                       wholeDisplay),
+              billRepository.findMatchingIDs
+                      (BillSearchQuery.parse("spent: 0.50"), amount),
+              billRepository.findMatchingIDs
+                      (BillSearchQuery.parse("10/02/2019) spent"),
+                       dateAndLabel));
+
+      assertEquals("(09/01/2019) Spent: 12.05; Allowed: 20.00",
+                   BillDisplays.format(BillDates.toEpochDay(2019, 9, 1),
+                                       1205, 2000));
+      assertArrayEquals(new int[] {1}, wholeDisplay.value);
+      assertArrayEquals(new int[] {2}, amount.value);
+      assertArrayEquals(new int[] {2}, dateAndLabel.value);
+   }
+
+   @Test
+   public void metrics_countDatabaseCallsOnlyWhileRecording()
+           throws Exception {
+      boolean wasRecording = Metrics.isRecording();
+      Metrics.reset();
+      try {
+         Metrics.setRecording(true);
+         billRepository.addBill(BillDates.toEpochDay(2019, 9, 1), 1250, 2000,
+                                null);
+         awaitCompletion(billRepository.findMatchingIDs
+                 (BillSearchQuery.parse("spent"), null));
+         Metrics.setRecording(false);
+         awaitCompletion(billRepository.addBill
+                 (BillDates.toEpochDay(2019, 9, 2), 500, 1000, null));
+
+         assertEquals(1, Metrics.getCallCount(Metrics.DB_INSERT));
+         assertEquals(1, Metrics.getCallCount(Metrics.DB_SEARCH));
+         assertTrue(Metrics.getPercentileMicros(Metrics.DB_SEARCH, 99)
+                    >= Metrics.getPercentileMicros(Metrics.DB_SEARCH, 50));
+      } finally {
+         Metrics.setRecording(wasRecording);
+         Metrics.reset();
+      }
+   }
+
+   @Test
+   public void failedCall_reportsItsFailureAndLetsLaterCallsRun()
+           throws Exception {
+      billRepository.addBill(BillDates.toEpochDay(2019, 9, 1), 1250, 2000,
+                             null);
+      awaitCompletion(billRepository.getTotalLeftoverCents(null));
+      final List<Object> results = new ArrayList<>();
+      billDB.failOpens = true;
+      Future<?> failedCall = billRepository.removeBillsMatching
+              (DatePattern.parse("09/XX/2019"),
+               new BillRepository.Callback<Integer>() {
+         @Override
+         public void onResult(Integer deletedCount) {
+            results.add(deletedCount);
+         }
+
+         @Override
+         public void onError(RuntimeException failure) {
+            results.add(failure.getClass());
+         }
+      });
+      try {
+         failedCall.get(5, TimeUnit.SECONDS);
+         fail("the call should have failed");
+      } catch (ExecutionException e) {
+         assertTrue(e.getCause() instanceof SQLiteFullException);
+      }
+      billDB.failOpens = false;
+      awaitCompletion(billRepository.getTotalLeftoverCents
+              (new BillRepository.Callback<Long>() {
+         @Override
+         public void onResult(Long leftoverCents) {
+            results.add(leftoverCents);
+         }
+      }));
+
+      assertEquals("[" + SQLiteFullException.class + ", 750]",
+                   results.toString());
+   }
+
+   @Test
+   public void compact_purgesDeletedBillsAndKeepsTheTotals() throws Exception {
+      List<Bill> bills = new ArrayList<>();
+      for (int i = 0; i < DatabaseHelper.PURGE_CHUNK_SIZE + 10; i++) {
+         bills.add(new Bill(BillDates.toEpochDay(2019, 9, 1), 100, 1000));
+      }
+      bills.add(new Bill(BillDates.toEpochDay(2019, 10, 1), 300, 1500));
+      billRepository.addBills(bills.iterator(), null, null);
+      billRepository.removeBillsMatching(DatePattern.parse("09/XX/2019"),
+                                         null);
+      final Result<Integer> purgedCount = new Result<>();
+      billRepository.compact(purgedCount);
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (purgedCount.value == null && System.nanoTime() < deadline) {
+         Thread.sleep(10); // the chunks are requested one after another
+         shadowOf(Looper.getMainLooper()).idle();
+      }
+      Result<Long> leftoverCents = new Result<>();
+      Result<BillStore> remainingBills = new Result<>();
+      awaitCompletion(billRepository.getTotalLeftoverCents(leftoverCents),
+                      billRepository.loadBillsBefore
+                              (Integer.MAX_VALUE, BillRepository.NO_LIMIT,
+                               remainingBills));
+
+      assertEquals(DatabaseHelper.PURGE_CHUNK_SIZE + 10,
+                   (int) purgedCount.value);
+      assertEquals(1200, (long) leftoverCents.value);
+      assertEquals(1, remainingBills.value.size());
+   }
+
+   // post: waits for the given calls to finish, then runs the callbacks they
+   //       posted to the main looper; a call only finishes after every write
+   //       requested before it (and, for a write, every read too), but reads
+   //       aren't ordered with each other, so each read waited for must be
+   //       given
+   private void awaitCompletion(Future<?>... calls) throws Exception {
+      for (Future<?> call : calls) {
+         call.get(5, TimeUnit.SECONDS);
+      }
+      shadowOf(Looper.getMainLooper()).idle();
+   }
+
+   private static int[] IDsOf(BillStore page) {
+      int[] IDs = new int[page.size()];
+      for (int i = 0; i < IDs.length; i++) {
+         IDs[i] = page.getID(i);
+      }
+      return IDs;
+   }
+
+   /*
+    * Callback keeping the result it was given, for reads that may finish in
+    * any order.
+    */
+   private static class Result<T> extends BillRepository.Callback<T> {
+
+      T value;
+
+      @Override
+      public void onResult(T result) {
+         value = result;
+      }
+
+   }
+
+   /*
+    * DatabaseHelper that counts how often the database is opened, and how
+    * often that happens on the main looper's thread, and how often the daily
+    * totals are built, and that fails to open it while 'failOpens' is true.
+    */
+   private static class MainThreadCheckingHelper extends DatabaseHelper {
+
+      final AtomicInteger openCount = new AtomicInteger();
+      final AtomicInteger mainLooperOpenCount = new AtomicInteger();
+      final AtomicInteger dailyTotalsBuildCount = new AtomicInteger();
+      volatile boolean failOpens;
+
+      MainThreadCheckingHelper(Context context) {
+         super(context);
+      }
+
+      @Override
+      public SQLiteDatabase getWritableDatabase() {
+         recordOpen();
+         return super.getWritableDatabase();
+      }
+
+      @Override
+      public SQLiteDatabase getReadableDatabase() {
+         recordOpen();
+         return super.getReadableDatabase();
+      }
+
+      @Override
+      public DailyTotalsTree buildDailyTotals() {
+         dailyTotalsBuildCount.incrementAndGet();
+         return super.buildDailyTotals();
+      }
+
+      private void recordOpen() {
+         if (failOpens) {
+            throw new SQLiteFullException("database or disk is full");
+         }
+         openCount.incrementAndGet();
+         if (Thread.currentThread() == Looper.getMainLooper().getThread()) {
+            mainLooperOpenCount.incrementAndGet();
+         }
+      }
+
+   }
+
+}
@@ -0,0 +1,72 @@
+package com.example.restaurantspendingtracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the rule BillSearchQuery matches displays by in memory, and which
+ * queries it treats as narrowing a previous one, since a narrowing search
+ * only filters the previous results.
+ */
+public class BillSearchQueryTest {
+
+   private static final String DISPLAY =
+           "(09/01/2019) Spent: 12.50; Allowed: 20.00";
+
+   @Test
+   public void isNarrowingOf_letsTheLastWordGrow() {
+      assertTrue(narrows("spent 1", "spent 12"));
+      assertTrue(narrows("spent 12", "spent 12"));
+      assertTrue(narrows("spent", "spent 12"));
+      assertTrue(narrows("spent 12", "spent 12 50"));
+      assertTrue(narrows("Spent: 12", "spent 12.5"));
+      assertTrue(narrows("", "spent"));
+   }
+
+   @Test
+   public void isNarrowingOf_rejectsQueriesThatCanMatchMore() {
+      assertFalse(narrows("spent 12", "spent 1"));
+      assertFalse(narrows("spent 12", "spent"));
+      assertFalse(narrows("spent 12", ""));
+      assertFalse(narrows("spent 12", "spent 13"));
+      // only the last word may be a prefix, so "sp" must be a whole word
+      assertFalse(narrows("sp 12", "spent 12"));
+      assertFalse(narrows("spent 12", "allowed spent 12"));
+   }
+
+   @Test
+   public void matches_letsOnlyTheLastWordBeAPrefix() {
+      assertTrue(matches("spent 12", DISPLAY));
+      assertTrue(matches("SPENT 12 5", DISPLAY));
+      assertTrue(matches("2019 spent", DISPLAY));
+      assertTrue(matches("allowed 20 00", DISPLAY));
+      assertTrue(matches("al", DISPLAY));
+      assertTrue(matches("", DISPLAY));
+      assertFalse(matches("sp 12", DISPLAY));
+      assertFalse(matches("spent 1", "Spent: 21.00"));
+      assertFalse(matches("spent 2", DISPLAY));
+      assertFalse(matches("spent allowed", DISPLAY));
+      assertFalse(matches("12 spent", DISPLAY));
+   }
+
+   @Test
+   public void toMatchExpression_isAPhraseEndingInAPrefix() {
+      assertEquals("\"spent 12*\"",
+                   BillSearchQuery.parse("Spent: 12").toMatchExpression());
+      assertEquals("\"09 01 2019*\"",
+                   BillSearchQuery.parse("(09/01/2019)").toMatchExpression());
+   }
+
+   private static boolean narrows(String previous, String query) {
+      return BillSearchQuery.parse(query)
+                            .isNarrowingOf(BillSearchQuery.parse(previous));
+   }
+
+   private static boolean matches(String query, String display) {
+      return BillSearchQuery.parse(query).matches(display);
+   }
+
+}
@@ -0,0 +1,215 @@
+package com.example.restaurantspendingtracker;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteFullException;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that a snapshot written by BillSnapshot restores the bills it was
+ * written from, and that a corrupt snapshot or a failed insert leaves the
+ * database as it was.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BillSnapshotTest {
+
+   // more than one chunk, so a restore spans several nested transactions
+   private static final int BILL_COUNT =
+           DatabaseHelper.BULK_INSERT_CHUNK_SIZE + 500;
+
+   private Context context;
+   private FailingInsertHelper billDB;
+   private File snapshotFile;
+
+   @Before
+   public void setUp() {
+      context = ApplicationProvider.getApplicationContext();
+      context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+      billDB = new FailingInsertHelper(context);
+      snapshotFile = new File(context.getFilesDir(), "test.rsbk");
+   }
+
+   @After
+   public void tearDown() {
+      billDB.close();
+      snapshotFile.delete();
+   }
+
+   @Test
+   public void restore_bringsBackTheBillsTheSnapshotWasWrittenFrom() {
+      List<Bill> bills = new ArrayList<>();
+      for (Iterator<Bill> synthetic = new SyntheticBills(BILL_COUNT, 2019);
+           synthetic.hasNext(); ) {
+         bills.add(synthetic.next());
+      }
+      // an earlier date than the bill before it, and the largest amounts
+      bills.add(new Bill(BillDates.toEpochDay(2001, 2, 3),
+                         999999999999999L, 0));
+      bills.add(new Bill(BillDates.toEpochDay(2019, 9, 1), 0,
+                         999999999999999L));
+      billDB.addBills(bills.iterator(), null);
+      List<String> written = rowsOf(billDB);
+      long writtenTotal = billDB.getTotalLeftoverCents();
+
+      BillTransfer.Result backup = writeSnapshot();
+      billDB.addBills(Arrays.asList(new Bill(BillDates.toEpochDay
+              (2020, 1, 1), 100, 200)).iterator(), null);
+      BillTransfer.Result restore =
+              BillSnapshot.restore(billDB, snapshotFile, null);
+
+      assertNull(backup.getError());
+      assertNull(restore.getError());
+      assertEquals(bills.size(), backup.getBillCount());
+      assertEquals(bills.size(), restore.getBillCount());
+      assertEquals(written, rowsOf(billDB));
+      assertEquals(writtenTotal, billDB.getTotalLeftoverCents());
+      assertTrue(snapshotFile.length() < bills.size() * 10L);
+   }
+
+   @Test
+   public void restore_leavesTheDatabaseAloneWhenTheSnapshotIsCorrupt()
+           throws IOException {
+      billDB.addBills(new SyntheticBills(BILL_COUNT, 2019), null);
+      writeSnapshot();
+      billDB.addBills(new SyntheticBills(10, 2019), null);
+      List<String> before = rowsOf(billDB);
+
+      RandomAccessFile snapshot = new RandomAccessFile(snapshotFile, "rw");
+      try {
+         snapshot.seek(snapshot.length() / 2);
+         int b = snapshot.read();
+         snapshot.seek(snapshot.length() / 2);
+         snapshot.write(b ^ 0x01);
+      } finally {
+         snapshot.close();
+      }
+      BillTransfer.Result flipped =
+              BillSnapshot.restore(billDB, snapshotFile, null);
+
+      snapshot = new RandomAccessFile(snapshotFile, "rw");
+      try {
+         snapshot.setLength(10);
+      } finally {
+         snapshot.close();
+      }
+      BillTransfer.Result truncated =
+              BillSnapshot.restore(billDB, snapshotFile, null);
+
+      assertNotNull(flipped.getError());
+      assertEquals("Corrupt backup (checksum)",
+                   flipped.getError().getMessage());
+      assertNotNull(truncated.getError());
+      assertEquals("Not a backup (too short)",
+                   truncated.getError().getMessage());
+      assertEquals(before, rowsOf(billDB));
+   }
+
+   @Test
+   public void restore_leavesTheDatabaseAloneWhenABillCantBeInserted() {
+      billDB.addBills(new SyntheticBills(BILL_COUNT, 2019), null);
+      writeSnapshot();
+      billDB.addBills(new SyntheticBills(10, 2019), null);
+      List<String> before = rowsOf(billDB);
+      long totalBefore = billDB.getTotalLeftoverCents();
+
+      // fails in the second chunk, once the first one is inserted
+      billDB.failAfterCount = DatabaseHelper.BULK_INSERT_CHUNK_SIZE + 1;
+      BillTransfer.Result restore =
+              BillSnapshot.restore(billDB, snapshotFile, null);
+      billDB.failAfterCount = -1;
+
+      assertNotNull(restore.getError());
+      assertEquals(0, restore.getBillCount());
+      assertEquals(before, rowsOf(billDB));
+      assertEquals(totalBefore, billDB.getTotalLeftoverCents());
+   }
+
+   // post: writes a snapshot of every bill in the database to 'snapshotFile'
+   //       and returns the outcome
+   private BillTransfer.Result writeSnapshot() {
+      Cursor bills = billDB.getAllBillsOldestFirst();
+      try {
+         return BillSnapshot.write(bills, snapshotFile, null);
+      } finally {
+         bills.close();
+      }
+   }
+
+   // post: returns the date paid, amount paid and money allowed of every
+   //       bill in the given database, oldest first
+   private static List<String> rowsOf(DatabaseHelper billDB) {
+      List<String> rows = new ArrayList<>();
+      Cursor bills = billDB.getAllBillsOldestFirst();
+      try {
+         while (bills.moveToNext()) {
+            rows.add(bills.getInt(0) + "," + bills.getLong(1) + ","
+                     + bills.getLong(2));
+         }
+      } finally {
+         bills.close();
+      }
+      return rows;
+   }
+
+   /*
+    * DatabaseHelper whose bulk insert runs out of space after inserting
+    * 'failAfterCount' bills, unless it is negative.
+    */
+   private static class FailingInsertHelper extends DatabaseHelper {
+
+      int failAfterCount = -1;
+
+      FailingInsertHelper(Context context) {
+         super(context);
+      }
+
+      @Override
+      public BulkInsertResult addBills(final Iterator<Bill> bills,
+                                       BulkInsertListener listener) {
+         final int failAfter = failAfterCount;
+         return super.addBills(new Iterator<Bill>() {
+            private int count;
+
+            @Override
+            public boolean hasNext() {
+               return bills.hasNext();
+            }
+
+            @Override
+            public Bill next() {
+               if (count++ == failAfter) {
+                  throw new SQLiteFullException("database or disk is full");
+               }
+               return bills.next();
+            }
+
+            @Override
+            public void remove() {
+               throw new UnsupportedOperationException();
+            }
+         }, listener);
+      }
+
+   }
+
+}
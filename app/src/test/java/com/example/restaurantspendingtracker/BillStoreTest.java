@@ -0,0 +1,159 @@
+package com.example.restaurantspendingtracker;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the gap buffers of BillStore keep every bill at the index it
+ * is shown at, wherever the gap has moved to, and that the date index
+ * follows its removals and insertions.
+ */
+public class BillStoreTest {
+
+   // more than the initial capacity, so the store grows with a gap open
+   private static final int BILL_COUNT = 100;
+
+   @Test
+   public void indexOfID_findsBillsOnEitherSideOfTheGap() {
+      BillStore billStore = storeOf(BILL_COUNT);
+      billStore.remove(40); // ID 60
+      billStore.remove(40); // ID 59
+
+      assertEquals(0, billStore.indexOfID(100));
+      assertEquals(39, billStore.indexOfID(61));
+      assertEquals(40, billStore.indexOfID(58));
+      assertEquals(BILL_COUNT - 3, billStore.indexOfID(1));
+      assertEquals(-(40 + 1), billStore.indexOfID(60));
+      assertEquals(-(40 + 1), billStore.indexOfID(59));
+      assertEquals(-(BILL_COUNT - 2 + 1), billStore.indexOfID(0));
+      assertEquals(-1, billStore.indexOfID(BILL_COUNT + 1));
+   }
+
+   @Test
+   public void insert_putsRemovedBillsBackAtTheirIndices() {
+      BillStore billStore = storeOf(BILL_COUNT);
+      List<Integer> expectedIDs = IDsOf(BILL_COUNT);
+      int[] removedIndices = {0, 50, 10, 96, 10, 30};
+      int[] removedIDs = new int[removedIndices.length];
+      for (int i = 0; i < removedIndices.length; i++) {
+         removedIDs[i] = billStore.getID(removedIndices[i]);
+         billStore.remove(removedIndices[i]);
+         expectedIDs.remove(removedIndices[i]);
+         assertBills(expectedIDs, billStore);
+      }
+
+      // put back in another order than they were removed in
+      int[] insertOrder = {3, 0, 5, 1, 4, 2};
+      for (int i : insertOrder) {
+         int index = billStore.insert(removedIDs[i], dateOf(removedIDs[i]),
+                                      amountOf(removedIDs[i]),
+                                      allowedOf(removedIDs[i]));
+         int expectedIndex = 0;
+         while (expectedIndex < expectedIDs.size()
+                && expectedIDs.get(expectedIndex) > removedIDs[i]) {
+            expectedIndex++;
+         }
+         expectedIDs.add(expectedIndex, removedIDs[i]);
+         assertEquals(expectedIndex, index);
+         assertBills(expectedIDs, billStore);
+      }
+      assertBills(IDsOf(BILL_COUNT), billStore);
+   }
+
+   @Test
+   public void append_andRemove_acrossAnOpenGap() {
+      BillStore billStore = storeOf(BILL_COUNT);
+      List<Integer> expectedIDs = IDsOf(BILL_COUNT);
+      billStore.remove(20);
+      expectedIDs.remove(20);
+      for (int ID = 0; ID > -BILL_COUNT; ID--) { // past the capacity
+         billStore.append(ID, dateOf(ID), amountOf(ID), allowedOf(ID));
+         expectedIDs.add(ID);
+      }
+      assertBills(expectedIDs, billStore);
+
+      billStore.remove(5);
+      expectedIDs.remove(5);
+      for (int i = billStore.size() - 1; i >= 0; i -= 3) {
+         billStore.remove(i);
+         expectedIDs.remove(i);
+      }
+      assertBills(expectedIDs, billStore);
+   }
+
+   @Test
+   public void indicesOfDatesMatching_followsRemovalsAndInsertions() {
+      BillStore billStore = new BillStore(true);
+      // three bills a day, from 09/01/2019 on
+      for (int ID = 30; ID >= 1; ID--) {
+         billStore.append(ID, BillDates.toEpochDay(2019, 9, 1) + (ID - 1) / 3,
+                          amountOf(ID), allowedOf(ID));
+      }
+      DatePattern secondOfSeptember = DatePattern.parse("09/02/2019");
+      assertArrayEquals(new int[] {24, 25, 26},
+                        billStore.indicesOfDatesMatching(secondOfSeptember));
+
+      billStore.remove(25); // ID 5
+      billStore.remove(0); // ID 30
+      assertArrayEquals(new int[] {23, 24},
+                        billStore.indicesOfDatesMatching(secondOfSeptember));
+
+      billStore.insert(5, BillDates.toEpochDay(2019, 9, 2), amountOf(5),
+                       allowedOf(5));
+      assertArrayEquals(new int[] {23, 24, 25},
+                        billStore.indicesOfDatesMatching(secondOfSeptember));
+      assertEquals(0, billStore.indicesOfDatesMatching
+              (DatePattern.parse("09/11/2019")).length);
+   }
+
+   // post: returns a store of the bills with IDs 'billCount' down to 1
+   private static BillStore storeOf(int billCount) {
+      BillStore billStore = new BillStore();
+      for (int ID = billCount; ID >= 1; ID--) {
+         billStore.append(ID, dateOf(ID), amountOf(ID), allowedOf(ID));
+      }
+      return billStore;
+   }
+
+   // post: returns the IDs 'billCount' down to 1
+   private static List<Integer> IDsOf(int billCount) {
+      List<Integer> IDs = new ArrayList<>();
+      for (int ID = billCount; ID >= 1; ID--) {
+         IDs.add(ID);
+      }
+      return IDs;
+   }
+
+   // post: checks that the given store holds the bills with the given IDs,
+   //       in order, each with the fields it was added with
+   private static void assertBills(List<Integer> expectedIDs,
+                                   BillStore billStore) {
+      int[] IDs = new int[billStore.size()];
+      for (int i = 0; i < IDs.length; i++) {
+         IDs[i] = billStore.getID(i);
+         assertEquals(dateOf(IDs[i]), billStore.getDatePaid(i));
+         assertEquals(amountOf(IDs[i]), billStore.getAmountPaid(i));
+         assertEquals(allowedOf(IDs[i]), billStore.getMoneyAllowed(i));
+      }
+      assertEquals(expectedIDs.toString(), Arrays.toString(IDs));
+   }
+
+   private static int dateOf(int ID) {
+      return BillDates.toEpochDay(2019, 1, 1) + ID;
+   }
+
+   private static long amountOf(int ID) {
+      return ID * 100L + 5;
+   }
+
+   private static long allowedOf(int ID) {
+      return ID * 100L + 2000;
+   }
+
+}
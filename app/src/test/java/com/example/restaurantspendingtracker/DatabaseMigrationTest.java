@@ -0,0 +1,185 @@
+package com.example.restaurantspendingtracker;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Checks that DatabaseHelper upgrades a version 1 database, which only held
+ * each bill's display and leftover money, to the current schema without
+ * losing a bill: the typed columns, the leftover total, the search index,
+ * the rollups and the next ID to be given out.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseMigrationTest {
+
+   // more than one batch of the conversion to typed columns
+   private static final int FILLER_BILL_COUNT = 600;
+
+   private Context context;
+   private DatabaseHelper billDB;
+
+   @Before
+   public void setUp() {
+      context = ApplicationProvider.getApplicationContext();
+      context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+      File databaseFile = context.getDatabasePath
+              (DatabaseHelper.DATABASE_NAME);
+      databaseFile.getParentFile().mkdirs();
+
+      SQLiteDatabase legacyDB =
+              SQLiteDatabase.openOrCreateDatabase(databaseFile, null);
+      try {
+         // the version 1 schema, as the first release created it
+         legacyDB.execSQL("CREATE TABLE BillData (ID INTEGER PRIMARY KEY " +
+                          "AUTOINCREMENT, DisplayedBill String, " +
+                          "LeftoverMoney DOUBLE)");
+         addLegacyBill(legacyDB, "(09/01/2019) Spent: 12.50; Allowed: 20.00",
+                       7.5);
+         // formatted with a locale whose decimal separator is ','
+         addLegacyBill(legacyDB, "(09/02/2019) Spent: 3,25; Allowed: 15,00",
+                       11.75);
+         // not a valid date
+         addLegacyBill(legacyDB, "(13/45/2019) Spent: 5.00; Allowed: 10.00",
+                       5.0);
+         // money allowed recovered from the leftover money
+         addLegacyBill(legacyDB, "(10/01/2020) Spent: 8.00; Allowed: ", 2.0);
+         for (int i = 0; i < FILLER_BILL_COUNT; i++) {
+            addLegacyBill(legacyDB, "(01/15/2018) Spent: 1.00; Allowed: 2.00",
+                          1.0);
+         }
+         // leaves the next ID past the last one left
+         legacyDB.delete("BillData", "ID = ?", new String[] {
+                 Integer.toString(4 + FILLER_BILL_COUNT)});
+         legacyDB.setVersion(1);
+      } finally {
+         legacyDB.close();
+      }
+      billDB = new DatabaseHelper(context);
+   }
+
+   @After
+   public void tearDown() {
+      billDB.close();
+   }
+
+   @Test
+   public void onUpgrade_fromVersion1_convertsEveryBill() {
+      int lastLegacyID = 3 + FILLER_BILL_COUNT;
+      assertEquals(lastLegacyID, DatabaseUtils.longForQuery
+              (billDB.getReadableDatabase(), "SELECT COUNT(*) FROM " +
+               DatabaseHelper.TABLE_NAME, null));
+      assertEquals("1, " + BillDates.toEpochDay(2019, 9, 1) + ", 1250, 2000",
+                   rowOf(1));
+      assertEquals("2, " + BillDates.toEpochDay(2019, 9, 2) + ", 325, 1500",
+                   rowOf(2));
+      assertEquals("3, 0, 500, 1000", rowOf(3)); // 01/01/1970
+      assertEquals("4, " + BillDates.toEpochDay(2020, 10, 1) + ", 800, 1000",
+                   rowOf(4));
+      assertEquals("5, " + BillDates.toEpochDay(2018, 1, 15) + ", 100, 200",
+                   rowOf(5));
+      assertFalse(columnsOf(DatabaseHelper.TABLE_NAME)
+                          .contains("DisplayedBill"));
+      assertFalse(columnsOf(DatabaseHelper.TABLE_NAME)
+                          .contains("LeftoverMoney"));
+
+      assertEquals(750 + 1175 + 500 + 200 + 100 * (FILLER_BILL_COUNT - 1),
+                   billDB.getTotalLeftoverCents());
+   }
+
+   @Test
+   public void onUpgrade_fromVersion1_indexesAndRollsUpEveryBill() {
+      assertArrayEquals(new int[] {2}, billDB.findMatchingIDs
+              (BillSearchQuery.parse(BillDisplays.format
+                      (BillDates.toEpochDay(2019, 9, 2), 325, 1500))));
+      assertArrayEquals(new int[] {3}, billDB.findMatchingIDs
+              (BillSearchQuery.parse("01/01/1970")));
+      assertEquals(FILLER_BILL_COUNT - 1, billDB.findMatchingIDs
+              (BillSearchQuery.parse("01/15/2018")).length);
+
+      SpendingRollup september =
+              billDB.getRollup(SpendingRollup.monthKey(2019, 9));
+      assertEquals(2, september.getBillCount());
+      assertEquals(1575, september.getAmountPaid());
+      assertEquals(3500, september.getMoneyAllowed());
+      SpendingRollup year2018 =
+              billDB.getRollup(SpendingRollup.yearKey(2018));
+      assertEquals(FILLER_BILL_COUNT - 1, year2018.getBillCount());
+      assertEquals(1, billDB.getRollup(SpendingRollup.yearKey(1970))
+                            .getBillCount());
+   }
+
+   @Test
+   public void onUpgrade_fromVersion1_keepsTheNextID() {
+      billDB.addBillData(BillDates.toEpochDay(2021, 1, 1), 100, 1000);
+
+      // the ID deleted before the upgrade isn't given out again
+      assertEquals(5 + FILLER_BILL_COUNT, DatabaseUtils.longForQuery
+              (billDB.getReadableDatabase(), "SELECT MAX(" +
+               DatabaseHelper.COL1 + ") FROM " + DatabaseHelper.TABLE_NAME,
+               null));
+   }
+
+   // post: adds a bill with the given display and leftover money to the given
+   //       version 1 database
+   private static void addLegacyBill(SQLiteDatabase legacyDB,
+                                     String displayedBill,
+                                     double leftoverMoney) {
+      ContentValues values = new ContentValues();
+      values.put("DisplayedBill", displayedBill);
+      values.put("LeftoverMoney", leftoverMoney);
+      legacyDB.insert("BillData", null, values);
+   }
+
+   // post: returns the ID, date paid, amount paid and money allowed of the
+   //       bill with the given ID, separated by ", "
+   private String rowOf(int ID) {
+      Cursor row = billDB.getReadableDatabase().rawQuery
+              ("SELECT " + DatabaseHelper.COL1 + ", " + DatabaseHelper.COL4 +
+               ", " + DatabaseHelper.COL5 + ", " + DatabaseHelper.COL6 +
+               " FROM " + DatabaseHelper.TABLE_NAME + " WHERE " +
+               DatabaseHelper.COL1 + " = ?",
+               new String[] {Integer.toString(ID)});
+      try {
+         row.moveToFirst();
+         return row.getInt(0) + ", " + row.getInt(1) + ", " + row.getLong(2)
+                + ", " + row.getLong(3);
+      } finally {
+         row.close();
+      }
+   }
+
+   // post: returns the names of the columns of the given table
+   private List<String> columnsOf(String tableName) {
+      List<String> columns = new ArrayList<>();
+      Cursor tableInfo = billDB.getReadableDatabase().rawQuery
+              ("PRAGMA table_info(" + tableName + ")", null);
+      try {
+         while (tableInfo.moveToNext()) {
+            columns.add(tableInfo.getString(1));
+         }
+      } finally {
+         tableInfo.close();
+      }
+      return columns;
+   }
+
+}
@@ -0,0 +1,294 @@
+package com.example.restaurantspendingtracker;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Runs the history's database operations against a large synthetic history
+ * and fails if any of them returns the wrong number of rows or takes longer
+ * than its time budget.
+ *
+ * Every run writes a JSON report of each operation's time, budget and row
+ * count to the directory given by the "performance.reportDir" system
+ * property (build/reports/performance by default), before any budget is
+ * checked, so a slow run still leaves its report behind.
+ *
+ * The suite takes about half a minute, so it is skipped unless the
+ * "performance.run" system property is true (set by running the unit tests
+ * with -Pperformance).
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabasePerformanceTest {
+
+   private static final int BILL_COUNT = 100000;
+
+   // year whose bills are deleted through a wildcard pattern
+   private static final int DELETED_YEAR = 2016;
+
+   // number of bills deleted one at a time, as when swiping them away
+   private static final int SINGLE_DELETE_COUNT = 100;
+
+   private static final String SEARCH_TEXT = "spent 12";
+
+   // time budgets, in milliseconds; on a development machine under
+   // Robolectric the insert took 19.8 s and the other operations about 5 s
+   // between them, so each budget leaves about three times the time taken
+   // for a slower machine, and only real slowdowns go over them
+   private static final long INSERT_BUDGET = 60000;
+   private static final long FULL_LOAD_BUDGET = 10000;
+   private static final long SEARCH_BUDGET = 2000;
+   private static final long SINGLE_DELETE_BUDGET = 2000;
+   private static final long WILDCARD_DELETE_BUDGET = 5000;
+   private static final long TOTAL_BUDGET = 100;
+
+   private static final long TIMEOUT_SECONDS = 300;
+
+   private DatabaseHelper billDB;
+   private ExecutorService writeExecutor;
+   private ExecutorService readExecutor;
+   private BillRepository billRepository;
+   private final List<Measurement> measurements = new ArrayList<>();
+
+   @Before
+   public void setUp() {
+      Assume.assumeTrue("run with -Pperformance",
+                        Boolean.getBoolean("performance.run"));
+      Context context = ApplicationProvider.getApplicationContext();
+      context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+      billDB = new DatabaseHelper(context);
+      writeExecutor = Executors.newSingleThreadExecutor();
+      readExecutor = Executors.newFixedThreadPool(2);
+      // results are read straight from the Futures, so callbacks can run on
+      // the thread that produced them
+      billRepository = new BillRepository
+              (context, billDB, writeExecutor, readExecutor, new Executor() {
+         @Override
+         public void execute(Runnable command) {
+            command.run();
+         }
+      });
+   }
+
+   @After
+   public void tearDown() throws Exception {
+      if (billDB == null) { // skipped
+         return;
+      }
+      writeExecutor.shutdown();
+      readExecutor.shutdown();
+      writeExecutor.awaitTermination(5, TimeUnit.SECONDS);
+      readExecutor.awaitTermination(5, TimeUnit.SECONDS);
+      billDB.close();
+   }
+
+   @Test
+   public void largeHistory_staysWithinBudgets() throws Exception {
+      SyntheticBills bills = new SyntheticBills(BILL_COUNT, DELETED_YEAR);
+      Result<BulkInsertResult> inserted = new Result<>();
+      long startNanos = System.nanoTime();
+      measure("insert", INSERT_BUDGET, startNanos,
+              billRepository.addBills(bills, null, inserted));
+      record(inserted.value.getInsertedCount());
+
+      Result<BillStore> history = new Result<>();
+      startNanos = System.nanoTime();
+      measure("full load", FULL_LOAD_BUDGET, startNanos,
+              billRepository.loadBillsBefore(Integer.MAX_VALUE,
+                                             BillRepository.NO_LIMIT,
+                                             history));
+      record(history.value.size());
+
+      BillSearchQuery query = BillSearchQuery.parse(SEARCH_TEXT);
+      Result<int[]> matchingIDs = new Result<>();
+      startNanos = System.nanoTime();
+      measure("search", SEARCH_BUDGET, startNanos,
+              billRepository.findMatchingIDs(query, matchingIDs));
+      record(matchingIDs.value.length);
+
+      // the newest bills, none of which were paid in DELETED_YEAR
+      Future<?> lastDelete = null;
+      long singleDeletedLeftover = 0;
+      startNanos = System.nanoTime();
+      for (int i = 0; i < SINGLE_DELETE_COUNT; i++) {
+         lastDelete = billRepository.removeBill(history.value.getID(i), null);
+         singleDeletedLeftover += history.value.getMoneyAllowed(i)
+                                  - history.value.getAmountPaid(i);
+      }
+      measure("single delete", SINGLE_DELETE_BUDGET, startNanos, lastDelete);
+      record(SINGLE_DELETE_COUNT);
+
+      Result<Integer> wildcardDeleted = new Result<>();
+      startNanos = System.nanoTime();
+      measure("wildcard delete", WILDCARD_DELETE_BUDGET, startNanos,
+              billRepository.removeBillsMatching
+                      (new DatePattern(DatePattern.ANY, DatePattern.ANY,
+                                       DELETED_YEAR), wildcardDeleted));
+      record(wildcardDeleted.value);
+
+      Result<Long> total = new Result<>();
+      startNanos = System.nanoTime();
+      measure("total", TOTAL_BUDGET, startNanos,
+              billRepository.getTotalLeftoverCents(total));
+      record(1);
+
+      writeReport();
+
+      assertEquals(BILL_COUNT, inserted.value.getInsertedCount());
+      assertEquals(BILL_COUNT, history.value.size());
+      assertEquals(countMatches(history.value, query),
+                   matchingIDs.value.length);
+      assertEquals(bills.getCountedYearBillCount(),
+                   (int) wildcardDeleted.value);
+      assertEquals(bills.getTotalLeftoverCents() - singleDeletedLeftover
+                   - bills.getCountedYearLeftoverCents(),
+                   (long) total.value);
+      assertWithinBudgets();
+   }
+
+   // post: waits for the given call and records the time since 'startNanos'
+   //       against the given budget (in milliseconds)
+   private void measure(String name, long budgetMillis, long startNanos,
+                        Future<?> call) throws Exception {
+      call.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+      long elapsedNanos = System.nanoTime() - startNanos;
+      measurements.add(new Measurement(name, budgetMillis, elapsedNanos));
+   }
+
+   // post: records the number of rows of the last measured operation
+   private void record(int rowCount) {
+      measurements.get(measurements.size() - 1).rowCount = rowCount;
+   }
+
+   // post: fails with every operation that went over its budget
+   private void assertWithinBudgets() {
+      StringBuilder overBudget = new StringBuilder();
+      for (Measurement measurement : measurements) {
+         if (!measurement.isWithinBudget()) {
+            overBudget.append(String.format
+                    (Locale.US, "%n  %s took %.1f ms (budget %d ms)",
+                     measurement.name, measurement.getElapsedMillis(),
+                     measurement.budgetMillis));
+         }
+      }
+      if (overBudget.length() > 0) {
+         fail("Over budget at " + BILL_COUNT + " bills:" + overBudget);
+      }
+   }
+
+   // post: writes the measurements to DatabasePerformanceTest.json in the
+   //       report directory
+   private void writeReport() throws IOException {
+      File reportDir = new File(System.getProperty
+              ("performance.reportDir", "build/reports/performance"));
+      if (!reportDir.isDirectory() && !reportDir.mkdirs()) {
+         throw new IOException("Couldn't create " + reportDir);
+      }
+      StringBuilder report = new StringBuilder();
+      report.append("{\n  \"test\": \"").append(getClass().getSimpleName())
+            .append("\",\n  \"billCount\": ").append(BILL_COUNT)
+            .append(",\n  \"seed\": ").append(SyntheticBills.SEED)
+            .append(",\n  \"operations\": [");
+      for (int i = 0; i < measurements.size(); i++) {
+         Measurement measurement = measurements.get(i);
+         report.append((i == 0) ? "\n" : ",\n").append(String.format
+                 (Locale.US, "    {\"name\": \"%s\", \"elapsedMillis\": %.3f, "
+                  + "\"budgetMillis\": %d, \"rowCount\": %d, "
+                  + "\"withinBudget\": %b}",
+                  measurement.name, measurement.getElapsedMillis(),
+                  measurement.budgetMillis, measurement.rowCount,
+                  measurement.isWithinBudget()));
+      }
+      report.append("\n  ]\n}\n");
+
+      Writer writer = new OutputStreamWriter(new FileOutputStream
+              (new File(reportDir, getClass().getSimpleName() + ".json")),
+              "UTF-8");
+      try {
+         writer.write(report.toString());
+      } finally {
+         writer.close();
+      }
+   }
+
+   // post: returns the number of bills of the given store whose display
+   //       matches the given query
+   private static int countMatches(BillStore billStore,
+                                   BillSearchQuery query) {
+      StringBuilder display = new StringBuilder(BillDisplays.MAX_LENGTH);
+      int matchCount = 0;
+      for (int i = 0; i < billStore.size(); i++) {
+         display.setLength(0);
+         billStore.appendDisplay(display, i);
+         if (query.matches(display)) {
+            matchCount++;
+         }
+      }
+      return matchCount;
+   }
+
+   /*
+    * Callback keeping the result it was given.
+    */
+   private static class Result<T> extends BillRepository.Callback<T> {
+
+      volatile T value;
+
+      @Override
+      public void onResult(T result) {
+         value = result;
+      }
+
+   }
+
+   /*
+    * Time taken by one operation, against its budget.
+    */
+   private static class Measurement {
+
+      final String name;
+      final long budgetMillis;
+      final long elapsedNanos;
+      int rowCount;
+
+      Measurement(String name, long budgetMillis, long elapsedNanos) {
+         this.name = name;
+         this.budgetMillis = budgetMillis;
+         this.elapsedNanos = elapsedNanos;
+      }
+
+      double getElapsedMillis() {
+         return elapsedNanos / 1e6;
+      }
+
+      boolean isWithinBudget() {
+         return elapsedNanos <= budgetMillis * 1000000;
+      }
+
+   }
+
+}
@@ -0,0 +1,123 @@
+package com.example.restaurantspendingtracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks which date patterns DatePattern accepts, the dates they match and
+ * the ranges of epoch days they turn into.
+ */
+public class DatePatternTest {
+
+   @Test
+   public void tryParse_acceptsWildcardComponents() {
+      assertEquals("09/XX/2019", DatePattern.tryParse("9/xx/2019").toString());
+      assertEquals("XX/15/XXXX", DatePattern.tryParse("XX/15/XXXX").toString());
+      assertEquals("XX/XX/2019", DatePattern.tryParse("XX/XX/2019").toString());
+      assertEquals("XX/XX/XXXX", DatePattern.tryParse("xX/Xx/xxxX").toString());
+      assertEquals("XX/31/XXXX", DatePattern.tryParse("XX/31/XXXX").toString());
+   }
+
+   @Test
+   public void tryParse_rejectsMalformedPatterns() {
+      assertNull(DatePattern.tryParse(""));
+      assertNull(DatePattern.tryParse("09/01"));
+      assertNull(DatePattern.tryParse("09/01/2019/1"));
+      assertNull(DatePattern.tryParse("X/01/2019"));
+      assertNull(DatePattern.tryParse("09/01/XX"));
+      assertNull(DatePattern.tryParse("09/1X/2019"));
+      assertNull(DatePattern.tryParse("009/01/2019"));
+      assertNull(DatePattern.tryParse("09/01/20190"));
+      assertNull(DatePattern.tryParse("09/-1/2019"));
+   }
+
+   @Test
+   public void tryParse_rejectsDatesNoDayCanMatch() {
+      assertNull(DatePattern.tryParse("11/31/2019"));
+      assertNull(DatePattern.tryParse("11/31/XXXX"));
+      assertNull(DatePattern.tryParse("04/31/XXXX"));
+      assertNull(DatePattern.tryParse("13/01/2019"));
+      assertNull(DatePattern.tryParse("00/01/2019"));
+      assertNull(DatePattern.tryParse("01/00/2019"));
+      assertNull(DatePattern.tryParse("XX/32/XXXX"));
+      assertNull(DatePattern.tryParse("02/30/XXXX"));
+   }
+
+   @Test
+   public void tryParse_acceptsFebruary29OnlyWhenSomeYearHasIt() {
+      assertEquals("02/29/2016", DatePattern.tryParse("2/29/2016").toString());
+      assertEquals("02/29/2000", DatePattern.tryParse("2/29/2000").toString());
+      assertEquals("02/29/XXXX", DatePattern.tryParse("2/29/XXXX").toString());
+      assertNull(DatePattern.tryParse("02/29/2019"));
+      assertNull(DatePattern.tryParse("02/29/1900"));
+   }
+
+   @Test
+   public void matches_checksOnlyTheGivenComponents() {
+      DatePattern september2019 = DatePattern.parse("09/XX/2019");
+      assertTrue(september2019.matches(BillDates.toEpochDay(2019, 9, 1)));
+      assertTrue(september2019.matches(BillDates.toEpochDay(2019, 9, 30)));
+      assertFalse(september2019.matches(BillDates.toEpochDay(2019, 10, 1)));
+      assertFalse(september2019.matches(BillDates.toEpochDay(2018, 9, 1)));
+
+      DatePattern leapDay = DatePattern.parse("02/29/XXXX");
+      assertTrue(leapDay.matches(BillDates.toEpochDay(2016, 2, 29)));
+      assertFalse(leapDay.matches(BillDates.toEpochDay(2019, 3, 1)));
+      assertFalse(leapDay.matches(BillDates.toEpochDay(2019, 2, 28)));
+
+      DatePattern fifteenth = DatePattern.parse("XX/15/XXXX");
+      assertTrue(fifteenth.matches(BillDates.toEpochDay(1999, 12, 15)));
+      assertFalse(fifteenth.matches(BillDates.toEpochDay(1999, 12, 16)));
+
+      DatePattern any = DatePattern.parse("XX/XX/XXXX");
+      assertTrue(any.matches(0));
+      assertTrue(any.matches(BillDates.toEpochDay(2019, 9, 1)));
+   }
+
+   @Test
+   public void toEpochDayRanges_mergesAcrossMonthsAndYears() {
+      int min = BillDates.toEpochDay(2018, 11, 10);
+      int max = BillDates.toEpochDay(2020, 2, 10);
+
+      // every month of 2019 touches the next, so the year is one range
+      assertArrayEquals(new int[] {BillDates.toEpochDay(2019, 1, 1),
+                                   BillDates.toEpochDay(2019, 12, 31)},
+                        DatePattern.parse("XX/XX/2019")
+                                   .toEpochDayRanges(min, max));
+      // as is every year, clipped to the window
+      assertArrayEquals(new int[] {min, max}, DatePattern.parse("XX/XX/XXXX")
+                                                         .toEpochDayRanges
+                                                                 (min, max));
+      // single days a year apart stay separate ranges
+      assertArrayEquals(new int[] {BillDates.toEpochDay(2018, 12, 31),
+                                   BillDates.toEpochDay(2018, 12, 31),
+                                   BillDates.toEpochDay(2019, 12, 31),
+                                   BillDates.toEpochDay(2019, 12, 31)},
+                        DatePattern.parse("12/31/XXXX")
+                                   .toEpochDayRanges(min, max));
+   }
+
+   @Test
+   public void toEpochDayRanges_skipsMonthsWithoutTheDay() {
+      int min = BillDates.toEpochDay(2015, 1, 1);
+      int max = BillDates.toEpochDay(2020, 12, 31);
+
+      assertArrayEquals(new int[] {BillDates.toEpochDay(2016, 2, 29),
+                                   BillDates.toEpochDay(2016, 2, 29),
+                                   BillDates.toEpochDay(2020, 2, 29),
+                                   BillDates.toEpochDay(2020, 2, 29)},
+                        DatePattern.parse("02/29/XXXX")
+                                   .toEpochDayRanges(min, max));
+      // seven months of 2019 have a 31st
+      assertEquals(7 * 2, DatePattern.parse("XX/31/2019")
+                                     .toEpochDayRanges(min, max).length);
+      assertEquals(0, DatePattern.parse("02/29/2016")
+                                 .toEpochDayRanges(min, min + 30).length);
+   }
+
+}
@@ -0,0 +1,69 @@
+package com.example.restaurantspendingtracker;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the amounts Money accepts and how it formats them.
+ */
+public class MoneyTest {
+
+   @Test
+   public void parseCents_acceptsUpToTwoDecimals() {
+      assertEquals(1200, Money.parseCents("12"));
+      assertEquals(1250, Money.parseCents("12.5"));
+      assertEquals(1205, Money.parseCents("12.05"));
+      assertEquals(50, Money.parseCents(".5"));
+      assertEquals(1200, Money.parseCents("12."));
+      assertEquals(0, Money.parseCents("0"));
+      assertEquals(707, Money.parseCents("007.07".subSequence(2, 6)));
+      assertEquals(1250, Money.parseCents("$12.50;", 1, 6));
+   }
+
+   @Test
+   public void parseCents_rejectsWhatIsntAnAmount() {
+      assertEquals(Money.INVALID, Money.parseCents(""));
+      assertEquals(Money.INVALID, Money.parseCents("."));
+      assertEquals(Money.INVALID, Money.parseCents("1.234"));
+      assertEquals(Money.INVALID, Money.parseCents("-1"));
+      assertEquals(Money.INVALID, Money.parseCents("1e3"));
+      assertEquals(Money.INVALID, Money.parseCents("1.2.3"));
+      assertEquals(Money.INVALID, Money.parseCents(" 1"));
+      assertEquals(Money.INVALID, Money.parseCents("12,50"));
+   }
+
+   @Test
+   public void parseCents_acceptsAtMostFifteenWholeDigits() {
+      assertEquals(99999999999999999L, Money.parseCents("999999999999999.99"));
+      assertEquals(100000000000000000L - 100,
+                   Money.parseCents("999999999999999"));
+      assertEquals(Money.INVALID, Money.parseCents("1000000000000000"));
+      assertEquals(Money.INVALID, Money.parseCents("9999999999999999.9"));
+   }
+
+   @Test
+   public void format_showsTwoDecimals() {
+      assertEquals("0.00", Money.format(0));
+      assertEquals("0.05", Money.format(5));
+      assertEquals("12.05", Money.format(1205));
+      assertEquals("-0.50", Money.format(-50));
+      assertEquals("999999999999999.99", Money.format(99999999999999999L));
+      assertEquals("92233720368547758.07", Money.format(Long.MAX_VALUE));
+      assertEquals("-92233720368547758.07", Money.format(-Long.MAX_VALUE));
+
+      StringBuilder builder = new StringBuilder("Spent: ");
+      Money.appendFormatted(builder, 1205);
+      assertEquals("Spent: 12.05", builder.toString());
+   }
+
+   @Test
+   public void format_isReadBackByParseCents() {
+      long[] amounts = {0, 1, 10, 99, 100, 1205, 123456789,
+                        99999999999999999L};
+      for (long cents : amounts) {
+         assertEquals(cents, Money.parseCents(Money.format(cents)));
+      }
+   }
+
+}
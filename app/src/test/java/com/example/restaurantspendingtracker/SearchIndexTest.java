@@ -0,0 +1,77 @@
+package com.example.restaurantspendingtracker;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that BillSearchQuery.matches(), used for narrowing results in
+ * memory, finds the same bills as the database's search index.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SearchIndexTest {
+
+   // date paid, amount paid and money allowed of each bill, ID 1 first
+   private static final int[][] BILLS = {
+           {BillDates.toEpochDay(2019, 9, 1), 1250, 2000},
+           {BillDates.toEpochDay(2019, 9, 12), 120, 1500},
+           {BillDates.toEpochDay(2019, 12, 1), 2100, 2000},
+           {BillDates.toEpochDay(2020, 1, 21), 50, 1200},
+           {BillDates.toEpochDay(2012, 2, 29), 0, 0},
+   };
+
+   private static final String[] QUERIES = {
+           "spent 12", "spent 1", "12", "1", "spent 2", "sp 12", "allowed 20",
+           "09", "09 01", "2019 spent", "spent allowed", "12 spent",
+           "Spent: 21.00", "0 00", "(02/29/2012) Spent: 0.00; Allowed: 0.00",
+   };
+
+   private Context context;
+   private DatabaseHelper billDB;
+
+   @Before
+   public void setUp() {
+      context = ApplicationProvider.getApplicationContext();
+      context.deleteDatabase(DatabaseHelper.DATABASE_NAME);
+      billDB = new DatabaseHelper(context);
+      for (int[] bill : BILLS) {
+         billDB.addBillData(bill[0], bill[1], bill[2]);
+      }
+   }
+
+   @After
+   public void tearDown() {
+      billDB.close();
+   }
+
+   @Test
+   public void matches_findsTheSameBillsAsTheSearchIndex() {
+      for (String text : QUERIES) {
+         BillSearchQuery query = BillSearchQuery.parse(text);
+         int[] matchingIDs = new int[BILLS.length];
+         int matchingCount = 0;
+         for (int ID = BILLS.length; ID >= 1; ID--) { // newest first
+            int[] bill = BILLS[ID - 1];
+            if (query.matches(BillDisplays.format(bill[0], bill[1],
+                                                  bill[2]))) {
+               matchingIDs[matchingCount++] = ID;
+            }
+         }
+
+         assertEquals(text, Arrays.toString(Arrays.copyOf(matchingIDs,
+                                                          matchingCount)),
+                      Arrays.toString(billDB.findMatchingIDs(query)));
+      }
+   }
+
+}
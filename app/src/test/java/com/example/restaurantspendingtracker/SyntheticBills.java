@@ -0,0 +1,81 @@
+package com.example.restaurantspendingtracker;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * Deterministic generator of a synthetic bill history, oldest bill first.
+ *
+ * The bills are generated the same way from the same seed on every run (the
+ * same way as the benchmarks' SyntheticHistory): one to a few days apart
+ * starting from 01/01/2015, with amounts paid of up to $40.00 and amounts
+ * allowed of $15.00 or $20.00. The generator keeps the totals the tests
+ * check the database against as it goes.
+ */
+final class SyntheticBills implements Iterator<Bill> {
+
+   static final long SEED = 20190901L;
+
+   private final Random random = new Random(SEED);
+   private final int billCount;
+   private final int countedYear;
+   private int generatedCount;
+   private int datePaid = BillDates.toEpochDay(2015, 1, 1);
+   private long totalLeftoverCents;
+   private long countedYearLeftoverCents;
+   private int countedYearBillCount;
+
+   // post: constructs a generator of 'billCount' bills that also counts the
+   //       bills paid in the given year
+   SyntheticBills(int billCount, int countedYear) {
+      this.billCount = billCount;
+      this.countedYear = countedYear;
+   }
+
+   @Override
+   public boolean hasNext() {
+      return generatedCount < billCount;
+   }
+
+   @Override
+   public Bill next() {
+      if (!hasNext()) {
+         throw new NoSuchElementException();
+      }
+      generatedCount++;
+      datePaid += random.nextInt(3);
+      long amountPaid = random.nextInt(4001);
+      long moneyAllowed = random.nextBoolean() ? 1500 : 2000;
+      totalLeftoverCents += moneyAllowed - amountPaid;
+      if (BillDates.yearOf(datePaid) == countedYear) {
+         countedYearBillCount++;
+         countedYearLeftoverCents += moneyAllowed - amountPaid;
+      }
+      return new Bill(datePaid, amountPaid, moneyAllowed);
+   }
+
+   @Override
+   public void remove() {
+      throw new UnsupportedOperationException();
+   }
+
+   // post: returns the leftover money (in cents) of every bill generated so
+   //       far
+   long getTotalLeftoverCents() {
+      return totalLeftoverCents;
+   }
+
+   // post: returns the number of bills generated so far that were paid in the
+   //       counted year
+   int getCountedYearBillCount() {
+      return countedYearBillCount;
+   }
+
+   // post: returns the leftover money (in cents) of the bills generated so
+   //       far that were paid in the counted year
+   long getCountedYearLeftoverCents() {
+      return countedYearLeftoverCents;
+   }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Benchmarks finding the bills whose dates match a date with wildcards, as
+ * done when deleting bills by date: the BillStore's date index and
+ * DatePattern on epoch days against splitting the date out of each display
+ * and comparing its components.
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import com.example.restaurantspendingtracker.BillStore;
+import com.example.restaurantspendingtracker.DatePattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DateMatchBenchmark {
+
+   @Param({"09/XX/2019", "XX/15/XXXX", "02/29/2016"})
+   public String date;
+
+   private DatePattern pattern;
+   private String[] components; // month, day and year of 'date'
+
+   @Setup
+   public void parseDate() {
+      pattern = DatePattern.parse(date);
+      components = date.split("/");
+   }
+
+   // post: returns the number of bills matching the date, checked with
+   //       DatePattern.matches()
+   @Benchmark
+   public int datePattern(SyntheticHistory history) {
+      BillStore billStore = history.billStore;
+      int matchingCount = 0;
+      for (int i = 0; i < billStore.size(); i++) {
+         if (pattern.matches(billStore.getDatePaid(i))) {
+            matchingCount++;
+         }
+      }
+      return matchingCount;
+   }
+
+   // post: returns the indices of the bills matching the date, looked up in
+   //       the BillStore's date index (filled in as the bills were appended)
+   @Benchmark
+   public int[] dateIndex(SyntheticHistory history) {
+      return history.billStore.indicesOfDatesMatching(pattern);
+   }
+
+   // post: returns the ranges of epoch days matching the date over the
+   //       history's dates, as used for the database's indexed delete
+   @Benchmark
+   public int[] datePatternRanges(SyntheticHistory history) {
+      BillStore billStore = history.billStore;
+      return pattern.toEpochDayRanges
+              (billStore.getDatePaid(billStore.size() - 1),
+               billStore.getDatePaid(0));
+   }
+
+   // post: returns the number of bills matching the date, checked the way
+   //       deleteMatchingDates used to
+   @Benchmark
+   public int legacyComponents(SyntheticHistory history) {
+      return Legacy.countMatchingDates(history.displays, components[0],
+                                       components[1], components[2]);
+   }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Benchmarks reading the date of every bill from its display: BillDates
+ * against the split-based getComponentsOfDisplayDate the app used before
+ * dates had a column of their own (and that the upgrade to typed columns
+ * replaced).
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import com.example.restaurantspendingtracker.BillDates;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DateParseBenchmark {
+
+   // post: parses the date of every display into an epoch day
+   @Benchmark
+   public void billDates(SyntheticHistory history, Blackhole blackhole) {
+      for (String display : history.displays) {
+         blackhole.consume(BillDates.parseEpochDay(display, 1,
+                                                   display.indexOf(')')));
+      }
+   }
+
+   // post: splits the date of every display into its components, the way
+   //       getComponentsOfDisplayDate did
+   @Benchmark
+   public void legacyComponents(SyntheticHistory history,
+                                Blackhole blackhole) {
+      for (String display : history.displays) {
+         blackhole.consume(Legacy.getComponentsOfDisplayDate(display));
+      }
+   }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Benchmarks validating a typed date, as done for the delete dialog's input:
+ * BillDates and DatePattern against the SimpleDateFormat-based
+ * getValidityAndComponentsOfNumDate, over a fixed mix of valid and invalid
+ * dates.
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import com.example.restaurantspendingtracker.BillDates;
+import com.example.restaurantspendingtracker.DatePattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DateValidationBenchmark {
+
+   private final String[] dates = {
+           "09/01/2019", "9/1/2019", "12/31/1999", "02/29/2020",
+           "02/30/2019", "13/01/2019", "01/15/0000", "ab/cd/efgh",
+           "07/04/2021", "1/15/2019/", "", "10/10/10"
+   };
+
+   // post: validates every date with BillDates
+   @Benchmark
+   public void billDates(Blackhole blackhole) {
+      for (String date : dates) {
+         blackhole.consume(BillDates.parseEpochDay(date));
+      }
+   }
+
+   // post: validates every date with DatePattern, as the delete dialog does
+   @Benchmark
+   public void datePattern(Blackhole blackhole) {
+      for (String date : dates) {
+         blackhole.consume(DatePattern.tryParse(date));
+      }
+   }
+
+   // post: validates every date the way the delete dialog did
+   @Benchmark
+   public void legacySimpleDateFormat(Blackhole blackhole) {
+      for (String date : dates) {
+         blackhole.consume(Legacy.getValidityAndComponentsOfNumDate(date));
+      }
+   }
+
+}
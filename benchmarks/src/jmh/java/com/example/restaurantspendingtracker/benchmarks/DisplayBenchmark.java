@@ -0,0 +1,55 @@
+/*
+ * Benchmarks producing the displays of every bill of a synthetic history:
+ * rendering them with BillDisplays into characters reused for every bill, the
+ * way HistoryRVAdapter binds its rows, against formatting a String per bill
+ * the way DatabaseHelper did when storing each bill's display.
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import com.example.restaurantspendingtracker.BillDisplays;
+import com.example.restaurantspendingtracker.BillStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DisplayBenchmark {
+
+   // post: renders the display of every bill into a reused buffer and
+   //       returns the total number of characters rendered
+   @Benchmark
+   public int renderDisplays(SyntheticHistory history) {
+      BillStore billStore = history.billStore;
+      StringBuilder display = new StringBuilder(BillDisplays.MAX_LENGTH);
+      char[] displayChars = new char[BillDisplays.MAX_LENGTH];
+      int charCount = 0;
+      for (int i = 0; i < billStore.size(); i++) {
+         display.setLength(0);
+         billStore.appendDisplay(display, i);
+         display.getChars(0, display.length(), displayChars, 0);
+         charCount += display.length();
+      }
+      return charCount;
+   }
+
+   // post: formats the display of every bill into a String of its own and
+   //       returns the total number of characters formatted
+   @Benchmark
+   public int legacyFormatDisplays(SyntheticHistory history) {
+      BillStore billStore = history.billStore;
+      int charCount = 0;
+      for (int i = 0; i < billStore.size(); i++) {
+         charCount += SyntheticHistory.display
+                 (billStore.getDatePaid(i), billStore.getAmountPaid(i),
+                  billStore.getMoneyAllowed(i)).length();
+      }
+      return charCount;
+   }
+
+}
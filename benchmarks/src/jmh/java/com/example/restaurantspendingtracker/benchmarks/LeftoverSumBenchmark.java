@@ -0,0 +1,48 @@
+/*
+ * Benchmarks adding up the leftover money of the whole history: whole cents
+ * from the BillStore's columns against the per-bill doubles the database
+ * used to store.
+ *
+ * The app now reads the total from a summary row instead; this measures the
+ * scan that row replaced.
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import com.example.restaurantspendingtracker.BillStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class LeftoverSumBenchmark {
+
+   // post: returns the total leftover money in cents
+   @Benchmark
+   public long cents(SyntheticHistory history) {
+      BillStore billStore = history.billStore;
+      long leftoverCents = 0;
+      for (int i = 0; i < billStore.size(); i++) {
+         leftoverCents += billStore.getMoneyAllowed(i)
+                          - billStore.getAmountPaid(i);
+      }
+      return leftoverCents;
+   }
+
+   // post: returns the total leftover money in dollars, added up the way
+   //       MainActivity used to
+   @Benchmark
+   public double legacyDoubles(SyntheticHistory history) {
+      double leftoverMoney = 0;
+      for (double billLeftover : history.leftoverMoney) {
+         leftoverMoney += billLeftover;
+      }
+      return leftoverMoney;
+   }
+
+}
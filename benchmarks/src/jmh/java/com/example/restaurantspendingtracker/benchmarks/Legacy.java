@@ -0,0 +1,135 @@
+/*
+ * Copies of the implementations the app used before the bill history was
+ * reworked, kept so the benchmarks can show how the current ones compare.
+ *
+ * Each method does what the method it is named after did, on the same kind
+ * of input, minus its Android dependencies.
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Locale;
+
+final class Legacy {
+
+   private Legacy() {
+   }
+
+   // post: returns the number of the given displays containing the given
+   //       text, ignoring case (HistoryRVAdapter's filter)
+   static int countMatchingDisplays(String[] displays, CharSequence text) {
+      String processedCharSeq = text.toString().toLowerCase().trim();
+      int matchingCount = 0;
+      for (int i = displays.length - 1; i >= 0; i--) {
+         if (displays[i].toLowerCase().contains(processedCharSeq)) {
+            matchingCount++;
+         }
+      }
+      return matchingCount;
+   }
+
+   // post: returns the month, day and year of the given display
+   //       (ViewHistoryActivity.getComponentsOfDisplayDate)
+   static String[] getComponentsOfDisplayDate(String displayedBill) {
+      String[] rightSideTrimmedDisplayDate = displayedBill.split("\\)");
+      String date = rightSideTrimmedDisplayDate[0].substring(1);
+      return date.split("/");
+   }
+
+   // pre:  'month', 'day' and 'year' are two-digit, two-digit and four-digit
+   //       strings, or "XX", "XX" and "XXXX"
+   // post: returns the number of the given displays whose dates match the
+   //       given date (ViewHistoryActivity.deleteMatchingDates)
+   static int countMatchingDates(String[] displays, String month, String day,
+                                 String year) {
+      boolean anyMonth = month.equals("XX");
+      boolean anyDay = day.equals("XX");
+      boolean anyYear = year.equals("XXXX");
+      int matchingCount = 0;
+      for (int i = displays.length - 1; i >= 0; i--) {
+         String[] billDateComponents = getComponentsOfDisplayDate(displays[i]);
+         if ((anyMonth || month.equals(billDateComponents[0]))
+                 && (anyDay || day.equals(billDateComponents[1]))
+                 && (anyYear || year.equals(billDateComponents[2]))) {
+            matchingCount++;
+         }
+      }
+      return matchingCount;
+   }
+
+   // post: returns {"false"} if the given string is not a valid numerical
+   //       date, or {"true", month, day, year} otherwise
+   //       (HistoryDeleteDialog.getValidityAndComponentsOfNumDate)
+   static String[] getValidityAndComponentsOfNumDate(String numericalDate) {
+      String[] validityAndDateInfo = new String[4];
+      try {
+         SimpleDateFormat  mSimpleDateFormat =
+                 new SimpleDateFormat("MM/dd/yyyy", Locale.US);
+         Date mDateObject = mSimpleDateFormat.parse(numericalDate);
+         if (mDateObject == null) {
+            validityAndDateInfo[0] = "false";
+            return validityAndDateInfo;
+         }
+         Calendar cal = Calendar.getInstance();
+         cal.setTime(mDateObject);
+         validityAndDateInfo[1] =
+                 Integer.toString((cal.get(Calendar.MONTH) + 1));
+         if (validityAndDateInfo[1].length() == 1) {
+            validityAndDateInfo[1] = "0"+validityAndDateInfo[1];
+         }
+         validityAndDateInfo[2]=
+                 Integer.toString(cal.get(Calendar.DAY_OF_MONTH));
+         if (validityAndDateInfo[2].length() == 1) {
+            validityAndDateInfo[2] = "0"+validityAndDateInfo[2];
+         }
+         validityAndDateInfo[3] = Integer.toString(cal.get(Calendar.YEAR));
+         validityAndDateInfo[0] = "true";
+      } catch(NullPointerException | ParseException e) {
+         validityAndDateInfo[0] = "false";
+      }
+      return validityAndDateInfo;
+   }
+
+   // post: returns true if the given amount isn't empty and has <= 2 decimal
+   //       places, returns false otherwise (AddBillActivity's validation of
+   //       an amount typed by the user through isNotValidMoneyInput)
+   static boolean isValidMoneyInput(String givenAmount) {
+      if (givenAmount.isEmpty()) {
+         return false;
+      }
+      String strAmount = Double.toString(Double.parseDouble(givenAmount));
+      if (strAmount.contains(".")) {
+         String[] amountComponents = strAmount.split("\\.");
+         return (amountComponents[1].length() <= 2);
+      }
+      return true;
+   }
+
+   // post: returns the given amount with exactly two decimal places
+   //       (AddBillActivity.updateSharedPrefs)
+   static String padMoneyAllowed(String givenMoneyAllowed) {
+      String formattedMoneyAllowed = givenMoneyAllowed;
+      if (!givenMoneyAllowed.contains(".")) {
+         formattedMoneyAllowed += ".00";
+      } else {
+         String[] allowedSplit = givenMoneyAllowed.split("\\.");
+         if (allowedSplit.length == 1) {
+            formattedMoneyAllowed += "00";
+         } else if (allowedSplit[1].length() == 1) {
+            formattedMoneyAllowed += "0";
+         }
+      }
+      return formattedMoneyAllowed;
+   }
+
+   // post: returns the given leftover amount (in cents) with two decimals
+   //       (MainActivity.onResume)
+   static String formatLeftover(long leftoverCents) {
+      return String.format(Locale.US, "%.2f", leftoverCents / 100.0);
+   }
+
+}
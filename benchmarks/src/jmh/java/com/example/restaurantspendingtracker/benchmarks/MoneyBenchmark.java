@@ -0,0 +1,90 @@
+/*
+ * Benchmarks handling amounts of money the way AddBillActivity and
+ * MainActivity do: validating typed amounts, padding the remembered allowed
+ * amount and formatting the leftover total, with Money against the
+ * double- and String-based code it replaced.
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import com.example.restaurantspendingtracker.Money;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MoneyBenchmark {
+
+   private final String[] amounts = {
+           "12", "12.5", "12.05", "0.99", "1234.56", "20.", "12.345", "",
+           "7", "100.10", "3.141", "45.6"
+   };
+
+   private final long[] leftoverCents = {
+           0, 1205, -50, 99, 123456, -987654, 100000000, 7
+   };
+
+   // post: validates every amount with Money
+   @Benchmark
+   public void parseMoney(Blackhole blackhole) {
+      for (String amount : amounts) {
+         blackhole.consume(Money.parseCents(amount) != Money.INVALID);
+      }
+   }
+
+   // post: validates every amount the way AddBillActivity did
+   @Benchmark
+   public void legacyParseDoubles(Blackhole blackhole) {
+      for (String amount : amounts) {
+         blackhole.consume(Legacy.isValidMoneyInput(amount));
+      }
+   }
+
+   // post: pads every valid amount to two decimals with Money
+   @Benchmark
+   public void padMoney(Blackhole blackhole) {
+      for (String amount : amounts) {
+         long cents = Money.parseCents(amount);
+         if (cents != Money.INVALID) {
+            blackhole.consume(Money.format(cents));
+         }
+      }
+   }
+
+   // post: pads every valid amount to two decimals the way AddBillActivity
+   //       did
+   @Benchmark
+   public void legacyPadStrings(Blackhole blackhole) {
+      for (String amount : amounts) {
+         if (Legacy.isValidMoneyInput(amount)) {
+            blackhole.consume(Legacy.padMoneyAllowed(amount));
+         }
+      }
+   }
+
+   // post: formats every leftover total with Money
+   @Benchmark
+   public void formatMoney(Blackhole blackhole) {
+      for (long cents : leftoverCents) {
+         blackhole.consume(Money.format(cents));
+      }
+   }
+
+   // post: formats every leftover total the way MainActivity did
+   @Benchmark
+   public void legacyStringFormat(Blackhole blackhole) {
+      for (long cents : leftoverCents) {
+         blackhole.consume(Legacy.formatLeftover(cents));
+      }
+   }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Benchmarks swiping away a screenful of bills from the middle of a synthetic
+ * history and undoing it: with the gap-buffered BillStore, looked up by ID
+ * with a binary search, against the list of boxed IDs the ViewHistory
+ * activity used to search with indexOf() and shift on every removal.
+ *
+ * Every operation puts the bills back, so each one starts from the same
+ * history.
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import com.example.restaurantspendingtracker.BillStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class RemovalBenchmark {
+
+   private static final int SWIPE_COUNT = 10; // about a screenful of rows
+
+   private BillStore billStore;
+   private List<Integer> allIDs; // newest first, as the activity held them
+   private int[] swipedIDs; // IDs of the rows swiped, top row first
+
+   // post: copies the history into a store and an ID list of this thread's
+   //       own, and picks the bills in the middle of it to swipe
+   @Setup(Level.Trial)
+   public void copyHistory(SyntheticHistory history) {
+      billStore = new BillStore(true); // indexed, as the activity's is
+      billStore.appendAll(history.billStore);
+      allIDs = new ArrayList<>(billStore.size());
+      for (int i = 0; i < billStore.size(); i++) {
+         allIDs.add(billStore.getID(i));
+      }
+      swipedIDs = new int[SWIPE_COUNT];
+      for (int i = 0; i < SWIPE_COUNT; i++) {
+         swipedIDs[i] = billStore.getID(billStore.size() / 2 + i);
+      }
+   }
+
+   // post: removes the swiped bills from the store one at a time, then puts
+   //       them back; returns the store's size in between
+   @Benchmark
+   public int swipeAndUndo() {
+      int[] datesPaid = new int[SWIPE_COUNT];
+      long[] amountsPaid = new long[SWIPE_COUNT];
+      long[] moneyAllowed = new long[SWIPE_COUNT];
+      for (int i = 0; i < SWIPE_COUNT; i++) {
+         int index = billStore.indexOfID(swipedIDs[i]);
+         datesPaid[i] = billStore.getDatePaid(index);
+         amountsPaid[i] = billStore.getAmountPaid(index);
+         moneyAllowed[i] = billStore.getMoneyAllowed(index);
+         billStore.remove(index);
+      }
+      int swipedSize = billStore.size();
+      for (int i = 0; i < SWIPE_COUNT; i++) {
+         billStore.insert(swipedIDs[i], datesPaid[i], amountsPaid[i],
+                          moneyAllowed[i]);
+      }
+      return swipedSize;
+   }
+
+   // post: removes the swiped IDs from the ID list one at a time, then puts
+   //       them back, the way the activity used to; returns the list's size
+   //       in between
+   @Benchmark
+   public int legacySwipeAndUndo() {
+      int[] positions = new int[SWIPE_COUNT];
+      for (int i = 0; i < SWIPE_COUNT; i++) {
+         positions[i] = allIDs.indexOf(swipedIDs[i]);
+         allIDs.remove(positions[i]);
+      }
+      int swipedSize = allIDs.size();
+      for (int i = 0; i < SWIPE_COUNT; i++) {
+         allIDs.add(positions[i] + i, swipedIDs[i]);
+      }
+      return swipedSize;
+   }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Benchmarks searching the bill history in memory: the query matcher the
+ * HistoryRVAdapter uses for narrowing searches against the lowercase
+ * substring filter it used before.
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import com.example.restaurantspendingtracker.BillDisplays;
+import com.example.restaurantspendingtracker.BillSearchQuery;
+import com.example.restaurantspendingtracker.BillStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SearchBenchmark {
+
+   @Param({"spent: 12", "09/1", "allowed"})
+   public String text;
+
+   private BillSearchQuery query;
+
+   @Setup
+   public void parseQuery() {
+      query = BillSearchQuery.parse(text);
+   }
+
+   // post: returns the number of bills matching the query, checked with
+   //       BillSearchQuery.matches()
+   @Benchmark
+   public int searchQuery(SyntheticHistory history) {
+      BillStore billStore = history.billStore;
+      StringBuilder display = new StringBuilder(BillDisplays.MAX_LENGTH);
+      int matchingCount = 0;
+      for (int i = 0; i < billStore.size(); i++) {
+         display.setLength(0);
+         billStore.appendDisplay(display, i);
+         if (query.matches(display)) {
+            matchingCount++;
+         }
+      }
+      return matchingCount;
+   }
+
+   // post: returns the number of bills matching the text, checked the way
+   //       the adapter's filter used to
+   @Benchmark
+   public int legacyFilter(SyntheticHistory history) {
+      return Legacy.countMatchingDisplays(history.displays, text);
+   }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * Benchmark state holding a synthetic bill history, generated the same way
+ * (from a fixed seed) for every run so results can be compared across runs.
+ *
+ * The bills are one to a few days apart starting from 01/01/2015, with
+ * amounts paid of up to $40.00 and amounts allowed of $15.00 or $20.00. They
+ * are held both the way the app holds them now (a BillStore, newest first)
+ * and the way it used to (display strings), for the legacy benchmarks.
+ */
+
+package com.example.restaurantspendingtracker.benchmarks;
+
+import com.example.restaurantspendingtracker.BillDates;
+import com.example.restaurantspendingtracker.BillStore;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Locale;
+import java.util.Random;
+
+@State(Scope.Benchmark)
+public class SyntheticHistory {
+
+   private static final long SEED = 20190901L;
+
+   @Param({"10000", "100000", "1000000"})
+   public int billCount;
+
+   public BillStore billStore; // newest first, as loaded by the app
+
+   // displays of the bills, newest first, as the app used to hold them
+   public String[] displays;
+
+   // leftover money (in dollars) of each bill, newest first, as the database
+   // used to store it
+   public double[] leftoverMoney;
+
+   // post: generates 'billCount' bills
+   @Setup(Level.Trial)
+   public void generate() {
+      Random random = new Random(SEED);
+      int[] datesPaid = new int[billCount];
+      long[] amountsPaid = new long[billCount];
+      long[] moneyAllowed = new long[billCount];
+      int datePaid = BillDates.toEpochDay(2015, 1, 1);
+      for (int i = 0; i < billCount; i++) { // oldest first
+         datePaid += random.nextInt(3);
+         datesPaid[i] = datePaid;
+         amountsPaid[i] = random.nextInt(4001);
+         moneyAllowed[i] = random.nextBoolean() ? 1500 : 2000;
+      }
+
+      billStore = new BillStore(true); // indexed, as the activity's is
+      displays = new String[billCount];
+      leftoverMoney = new double[billCount];
+      for (int i = billCount - 1, position = 0; i >= 0; i--, position++) {
+         String display = display(datesPaid[i], amountsPaid[i],
+                                  moneyAllowed[i]);
+         billStore.append(i + 1, datesPaid[i], amountsPaid[i],
+                          moneyAllowed[i]);
+         displays[position] = display;
+         leftoverMoney[position] = (moneyAllowed[i] - amountsPaid[i]) / 100.0;
+      }
+   }
+
+   // post: returns the display the app gives a bill with the given date and
+   //       amounts (in cents)
+   static String display(int datePaid, long amountPaid, long moneyAllowed) {
+      return String.format(Locale.US, "(%s) Spent: %.2f; Allowed: %.2f",
+                           BillDates.format(datePaid), amountPaid / 100.0,
+                           moneyAllowed / 100.0);
+   }
+
+}